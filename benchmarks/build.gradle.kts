@@ -0,0 +1,38 @@
+plugins {
+    id("java")
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":"))
+    jmh("org.jetbrains:annotations:24.0.1")
+    jmh("com.h2database:h2:2.2.224")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_16
+    targetCompatibility = JavaVersion.VERSION_16
+}
+
+jmh {
+    jmhVersion.set("1.37")
+
+    // Fixed settings so results are comparable between versions.
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    timeUnit.set("us")
+    benchmarkMode.set(listOf("avgt"))
+
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+
+    // Run a subset with -Pjmh.includes=Registration
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.set(listOf(it)) }
+}
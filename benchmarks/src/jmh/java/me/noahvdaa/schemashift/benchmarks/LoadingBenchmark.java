@@ -0,0 +1,68 @@
+package me.noahvdaa.schemashift.benchmarks;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import me.noahvdaa.schemashift.migration.MigrationSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Measures loading migrations from resources and files, and reading and splitting
+ * their scripts. Statements are sent to a connection that discards them, so only
+ * SchemaShift's own work is measured.
+ */
+@State(Scope.Benchmark)
+public class LoadingBenchmark {
+
+    @Param({"10", "100000"})
+    public int statementCount;
+
+    @Param({"1", "100"})
+    public int batchSize;
+
+    private Connection connection;
+    private File script;
+
+    @Setup
+    public void setup() throws IOException {
+        this.connection = NullConnection.create();
+        this.script = File.createTempFile("schemashift-benchmark", ".sql");
+        try (BufferedWriter writer = Files.newBufferedWriter(this.script.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("CREATE TABLE `benchmark` (`id` INT NOT NULL PRIMARY KEY, `name` VARCHAR(255) NOT NULL);\n");
+            for (int i = 0; i < this.statementCount; i++) {
+                writer.write("-- row " + i + "\n");
+                writer.write("INSERT INTO `benchmark` (`id`, `name`) VALUES (" + i + ", 'name; with ''quotes'' " + i + "');\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.script.toPath());
+    }
+
+    @Benchmark
+    public List<Migration> fromResourceFolder() throws IOException {
+        return Migration.fromResourceFolder("migrations");
+    }
+
+    @Benchmark
+    public Migration applyFromFile() throws SQLException {
+        Migration migration = Migration.fromScript("benchmark", MigrationSource.ofFile(this.script, StandardCharsets.UTF_8), this.batchSize);
+        migration.apply(this.connection);
+        return migration;
+    }
+
+}
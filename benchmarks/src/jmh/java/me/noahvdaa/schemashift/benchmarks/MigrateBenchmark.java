@@ -0,0 +1,107 @@
+package me.noahvdaa.schemashift.benchmarks;
+
+import me.noahvdaa.schemashift.SchemaShift;
+import me.noahvdaa.schemashift.migration.Migration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link SchemaShift#migrateLatest()} end to end against an in-memory H2
+ * database in MySQL mode, both for an empty database and for one that's up to date.
+ */
+public class MigrateBenchmark {
+
+    private final static String URL = "jdbc:h2:mem:schemashift;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @State(Scope.Benchmark)
+    public static class Migrations {
+
+        @Param({"10", "1000"})
+        public int migrationCount;
+
+        List<Migration> migrations;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            this.migrations = new ArrayList<>(this.migrationCount);
+            for (int i = 0; i < this.migrationCount; i++)
+                this.migrations.add(Migration.fromQuery(
+                    String.format("%06d_migration", i),
+                    "CREATE TABLE `benchmark_" + i + "` (`id` INT NOT NULL PRIMARY KEY);\n"
+                        + "INSERT INTO `benchmark_" + i + "` (`id`) VALUES (1), (2), (3);"
+                ));
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class EmptyDatabase {
+
+        Connection connection;
+
+        @Setup(Level.Invocation)
+        public void open() throws SQLException {
+            this.connection = DriverManager.getConnection(URL);
+        }
+
+        @TearDown(Level.Invocation)
+        public void drop() throws SQLException {
+            dropAndClose(this.connection);
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class UpToDateDatabase {
+
+        Connection connection;
+        SchemaShift schemaShift;
+
+        @Setup(Level.Trial)
+        public void migrate(Migrations migrations) throws SQLException {
+            this.connection = DriverManager.getConnection(URL);
+            this.schemaShift = SchemaShift.with(this.connection);
+            this.schemaShift.registerMigrations(migrations.migrations);
+            this.schemaShift.migrateLatest();
+        }
+
+        @TearDown(Level.Trial)
+        public void drop() throws SQLException {
+            dropAndClose(this.connection);
+        }
+
+    }
+
+    @Benchmark
+    public boolean migrateEmpty(Migrations migrations, EmptyDatabase database) throws SQLException {
+        SchemaShift schemaShift = SchemaShift.with(database.connection);
+        schemaShift.registerMigrations(migrations.migrations);
+        return schemaShift.migrateLatest();
+    }
+
+    @Benchmark
+    public boolean migrateUpToDate(UpToDateDatabase database) throws SQLException {
+        return database.schemaShift.migrateLatest();
+    }
+
+    private static void dropAndClose(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        } finally {
+            connection.close();
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package me.noahvdaa.schemashift.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * A connection that accepts and discards every statement, so benchmarks can
+ * measure the work SchemaShift does without any database round-trips.
+ */
+final class NullConnection {
+
+    private NullConnection() {
+    }
+
+    @NotNull
+    static Connection create() {
+        return (Connection) Proxy.newProxyInstance(
+            NullConnection.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "createStatement" -> statement();
+                case "isClosed" -> false;
+                default -> defaultValue(method.getReturnType());
+            }
+        );
+    }
+
+    @NotNull
+    private static Statement statement() {
+        return (Statement) Proxy.newProxyInstance(
+            NullConnection.class.getClassLoader(),
+            new Class<?>[]{Statement.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "executeBatch" -> new int[0];
+                default -> defaultValue(method.getReturnType());
+            }
+        );
+    }
+
+    private static Object defaultValue(@NotNull Class<?> type) {
+        if (type == boolean.class)
+            return false;
+        if (type == int.class)
+            return 0;
+        if (type == long.class)
+            return 0L;
+        return null;
+    }
+
+}
@@ -0,0 +1,53 @@
+package me.noahvdaa.schemashift.benchmarks;
+
+import me.noahvdaa.schemashift.SchemaShift;
+import me.noahvdaa.schemashift.migration.Migration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures registering migrations and looking up the ones after a given migration.
+ */
+@State(Scope.Benchmark)
+public class RegistrationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int migrationCount;
+
+    private Connection connection;
+    private List<Migration> migrations;
+    private SchemaShift registered;
+    private String middleId;
+
+    @Setup
+    public void setup() {
+        this.connection = NullConnection.create();
+        this.migrations = new ArrayList<>(this.migrationCount);
+        for (int i = 0; i < this.migrationCount; i++)
+            this.migrations.add(Migration.fromQuery(String.format("%06d_migration", i), "SELECT 1"));
+
+        this.registered = SchemaShift.with(this.connection);
+        this.registered.registerMigrations(this.migrations);
+        this.middleId = this.migrations.get(this.migrationCount / 2).id();
+    }
+
+    @Benchmark
+    public SchemaShift registerMigrations() {
+        SchemaShift schemaShift = SchemaShift.with(this.connection);
+        schemaShift.registerMigrations(this.migrations);
+        return schemaShift;
+    }
+
+    @Benchmark
+    public List<Migration> migrationsAfter() {
+        return this.registered.migrationsAfter(this.middleId);
+    }
+
+}
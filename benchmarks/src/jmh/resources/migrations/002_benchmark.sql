@@ -0,0 +1,5 @@
+CREATE TABLE `benchmark_2` (
+    `id` INT NOT NULL PRIMARY KEY,
+    `name` VARCHAR(255) NOT NULL
+);
+INSERT INTO `benchmark_2` (`id`, `name`) VALUES (1, 'one'), (2, 'two');
@@ -1 +1,3 @@
 rootProject.name = "SchemaShift"
+
+include("benchmarks")
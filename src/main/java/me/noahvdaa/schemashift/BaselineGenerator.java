@@ -0,0 +1,185 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Generates a schema snapshot from a migrated database, to be registered as a baseline
+ * with {@link SchemaShift#registerBaseline(me.noahvdaa.schemashift.migration.Migration, String)}.
+ * <p>
+ * The snapshot contains the tables and views of the connection's current schema, as reported
+ * by {@code SHOW CREATE TABLE} and {@code SHOW CREATE VIEW}. SchemaShift's own tables are left out,
+ * as are data, triggers and stored programs, so those should be added to the snapshot by hand if
+ * the migrations create them. Tables are created in alphabetical order, which works because
+ * registered baselines are applied with foreign key checks disabled.
+ * <p>
+ * This class can also be run from the command line, for example as a build step:
+ * {@code BaselineGenerator <jdbc url> <output file> [migrations table]}.
+ */
+public final class BaselineGenerator {
+
+    private final static String SHOW_TABLES_QUERY = """
+        SHOW FULL TABLES;
+        """;
+    private final static String SHOW_CREATE_TABLE_QUERY = """
+        SHOW CREATE TABLE `%s`;
+        """;
+    private final static String SHOW_CREATE_VIEW_QUERY = """
+        SHOW CREATE VIEW `%s`;
+        """;
+    private final static Pattern AUTO_INCREMENT = Pattern.compile(" AUTO_INCREMENT=\\d+");
+    private final static Pattern DEFINER = Pattern.compile(" DEFINER=`(?:[^`]|``)*`@`(?:[^`]|``)*`");
+
+    private BaselineGenerator() {
+    }
+
+    /**
+     * Generates a snapshot of the connection's current schema, leaving out
+     * the tables of SchemaShift instances using the default migrations table.
+     *
+     * @param connection the connection to a migrated database
+     * @return the SQL script that recreates the schema
+     * @throws SQLException if the schema could not be read
+     */
+    @NotNull
+    public static String generate(@NotNull Connection connection) throws SQLException {
+        return generate(connection, SchemaShiftImpl.DEFAULT_MIGRATIONS_TABLE);
+    }
+
+    /**
+     * Generates a snapshot of the connection's current schema, leaving out the
+     * tables SchemaShift uses to keep track of the specified migrations table.
+     *
+     * @param connection      the connection to a migrated database
+     * @param migrationsTable the name of the table that keeps track of applied migrations
+     * @return the SQL script that recreates the schema
+     * @throws SQLException if the schema could not be read
+     */
+    @NotNull
+    public static String generate(@NotNull Connection connection, @NotNull String migrationsTable) throws SQLException {
+        Objects.requireNonNull(connection, "connection may not be null");
+        Objects.requireNonNull(migrationsTable, "migrationsTable may not be null");
+
+        Set<String> excluded = Set.of(migrationsTable, ProgressStore.tableName(migrationsTable), MigrationLock.tableName(migrationsTable));
+        List<String> tables = new ArrayList<>();
+        List<String> views = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(SHOW_TABLES_QUERY);
+            while (resultSet.next()) {
+                String name = resultSet.getString(1);
+                if (excluded.contains(name))
+                    continue;
+
+                if ("VIEW".equalsIgnoreCase(resultSet.getString(2))) {
+                    views.add(name);
+                } else {
+                    tables.add(name);
+                }
+            }
+        }
+        tables.sort(null);
+
+        StringBuilder script = new StringBuilder();
+        script.append("-- Generated by SchemaShift's BaselineGenerator.\n\n");
+        for (String table : tables) {
+            String create = showCreate(connection, SHOW_CREATE_TABLE_QUERY, table);
+            // Auto increment counters are data, not schema.
+            script.append(AUTO_INCREMENT.matcher(create).replaceFirst("")).append(";\n\n");
+        }
+
+        TreeMap<String, String> viewDefinitions = new TreeMap<>();
+        for (String view : views) {
+            // Definers are specific to the database the snapshot was taken from.
+            viewDefinitions.put(view, DEFINER.matcher(showCreate(connection, SHOW_CREATE_VIEW_QUERY, view)).replaceFirst(""));
+        }
+        for (String view : orderViews(viewDefinitions)) {
+            script.append(viewDefinitions.get(view)).append(";\n\n");
+        }
+        return script.toString();
+    }
+
+    @NotNull
+    private static String showCreate(@NotNull Connection connection, @NotNull String query, @NotNull String name) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(String.format(query, name.replace("`", "``")));
+            if (!resultSet.next())
+                throw new SQLException("Could not read the definition of " + name);
+
+            return resultSet.getString(2);
+        }
+    }
+
+    /**
+     * Orders views so that views come after the views they select from.
+     *
+     * @param definitions the definitions of all views, by name
+     * @return the view names in the order they should be created
+     */
+    @NotNull
+    private static Set<String> orderViews(@NotNull TreeMap<String, String> definitions) {
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String view : definitions.keySet()) {
+            addView(view, definitions, ordered, new LinkedHashSet<>());
+        }
+        return ordered;
+    }
+
+    private static void addView(@NotNull String view, @NotNull TreeMap<String, String> definitions, @NotNull Set<String> ordered, @NotNull Set<String> visiting) {
+        if (ordered.contains(view) || !visiting.add(view))
+            return;
+
+        String definition = definitions.get(view);
+        for (String other : definitions.keySet()) {
+            if (!other.equals(view) && definition.contains("`" + other.replace("`", "``") + "`"))
+                addView(other, definitions, ordered, visiting);
+        }
+        ordered.add(view);
+    }
+
+    /**
+     * Writes a snapshot of a migrated database to a file.
+     * The database user and password can be included in the JDBC url.
+     *
+     * @param args the JDBC url, the output file and optionally the migrations table
+     * @throws SQLException if the schema could not be read
+     * @throws IOException  if the snapshot could not be written
+     */
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: BaselineGenerator <jdbc url> <output file> [migrations table]");
+            System.exit(1);
+            return;
+        }
+
+        String snapshot;
+        try (Connection connection = DriverManager.getConnection(args[0])) {
+            snapshot = args.length == 3 ? generate(connection, args[2]) : generate(connection);
+        }
+
+        Path output = Path.of(args[1]);
+        if (output.getParent() != null)
+            Files.createDirectories(output.getParent());
+
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(snapshot);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.ForwardingMigration;
+import me.noahvdaa.schemashift.migration.Migration;
+import me.noahvdaa.schemashift.migration.SessionProfile;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A schema snapshot that is applied instead of all migrations up to and including
+ * the migration it's equivalent to. It takes the id of that migration, so applying it
+ * records that migration as the last applied one.
+ * <p>
+ * Foreign key checks are disabled while the snapshot is applied, so its tables can be
+ * created in any order.
+ */
+@ApiStatus.Internal
+final class BaselineMigration extends ForwardingMigration {
+
+    private final String equivalentId;
+
+    BaselineMigration(@NotNull Migration snapshot, @NotNull String equivalentId) {
+        super(snapshot);
+        this.equivalentId = Objects.requireNonNull(equivalentId, "equivalentId may not be null");
+    }
+
+    @NotNull
+    @Override
+    public String id() {
+        return this.equivalentId;
+    }
+
+    @NotNull
+    @Override
+    public Set<String> dependencies() {
+        // A baseline is always applied first, to an empty database.
+        return Set.of();
+    }
+
+    @NotNull
+    @Override
+    public SessionProfile sessionProfile() {
+        return super.sessionProfile().with("foreign_key_checks", 0);
+    }
+
+    @NotNull
+    Migration snapshot() {
+        return this.delegate();
+    }
+
+}
@@ -0,0 +1,26 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Supplies fresh database connections, for example from a connection pool.
+ * A {@link javax.sql.DataSource} can be used directly through {@code dataSource::getConnection}.
+ * <p>
+ * Every connection obtained from a supplier is closed by SchemaShift once it's no longer needed.
+ */
+@FunctionalInterface
+public interface ConnectionSupplier {
+
+    /**
+     * Obtains a new connection.
+     *
+     * @return the new connection
+     * @throws SQLException if the connection could not be obtained
+     */
+    @NotNull
+    Connection get() throws SQLException;
+
+}
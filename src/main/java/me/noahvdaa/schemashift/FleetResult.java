@@ -0,0 +1,101 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The outcome of migrating every target of a {@link SchemaShiftFleet}.
+ * A failing target does not abort the other targets, so this result may
+ * contain both successes and failures.
+ */
+public final class FleetResult {
+
+    private final List<TargetResult> results;
+
+    FleetResult(@NotNull List<TargetResult> results) {
+        this.results = List.copyOf(Objects.requireNonNull(results, "results may not be null"));
+    }
+
+    /**
+     * Returns the results of all targets, in the order the targets were provided.
+     *
+     * @return the results of all targets
+     */
+    @NotNull
+    public List<TargetResult> results() {
+        return this.results;
+    }
+
+    /**
+     * Returns the results of all targets that failed to migrate.
+     *
+     * @return the failed targets
+     */
+    @NotNull
+    public List<TargetResult> failures() {
+        return this.results.stream().filter((result) -> result.failure() != null).toList();
+    }
+
+    /**
+     * Returns whether every target was migrated without errors.
+     *
+     * @return whether every target was migrated without errors
+     */
+    public boolean successful() {
+        return this.results.stream().allMatch((result) -> result.failure() == null);
+    }
+
+    /**
+     * Returns the amount of targets that had at least one migration applied.
+     *
+     * @return the amount of targets that had at least one migration applied
+     */
+    public int appliedCount() {
+        return (int) this.results.stream().filter(TargetResult::applied).count();
+    }
+
+    /**
+     * Throws an exception if at least one target failed to migrate.
+     * The failures of the individual targets are added as suppressed exceptions.
+     *
+     * @throws SQLException if at least one target failed to migrate
+     */
+    public void throwIfFailed() throws SQLException {
+        List<TargetResult> failures = this.failures();
+        if (failures.isEmpty())
+            return;
+
+        SQLException exception = new SQLException(failures.size() + " of " + this.results.size() + " targets failed to migrate");
+        for (TargetResult failure : failures) {
+            exception.addSuppressed(failure.failure());
+        }
+        throw exception;
+    }
+
+    /**
+     * The outcome of migrating a single target.
+     *
+     * @param target  the target that was migrated
+     * @param applied whether at least one migration was applied
+     * @param failure the exception that occurred while migrating, or null if the target was migrated successfully
+     */
+    public record TargetResult(@NotNull MigrationTarget target, boolean applied, @Nullable Exception failure) {
+
+        /**
+         * Creates a new target result.
+         *
+         * @param target  the target that was migrated
+         * @param applied whether at least one migration was applied
+         * @param failure the exception that occurred while migrating, or null if the target was migrated successfully
+         */
+        public TargetResult {
+            Objects.requireNonNull(target, "target may not be null");
+        }
+
+    }
+
+}
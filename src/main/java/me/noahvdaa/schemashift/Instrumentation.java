@@ -0,0 +1,183 @@
+package me.noahvdaa.schemashift;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import me.noahvdaa.schemashift.migration.Migration;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Reports migration events to all registered listeners and to JDK Flight Recorder.
+ */
+@ApiStatus.Internal
+final class Instrumentation {
+
+    private static final System.Logger LOGGER = System.getLogger(Instrumentation.class.getName());
+    private final String migrationsTable;
+    private final List<MigrationListener> listeners = new CopyOnWriteArrayList<>();
+
+    Instrumentation(@NotNull String migrationsTable) {
+        this.migrationsTable = Objects.requireNonNull(migrationsTable, "migrationsTable may not be null");
+    }
+
+    void addListener(@NotNull MigrationListener listener) {
+        this.listeners.add(Objects.requireNonNull(listener, "listener may not be null"));
+    }
+
+    @NotNull
+    Run runStarted(@NotNull List<Migration> pending) {
+        this.notifyListeners((listener) -> listener.runStarted(pending));
+
+        RunEvent event = new RunEvent();
+        event.migrationsTable = this.migrationsTable;
+        event.pendingCount = pending.size();
+        event.begin();
+        return new Run(event, System.nanoTime());
+    }
+
+    void runCompleted(@NotNull Run run, int appliedCount) {
+        run.event.appliedCount = appliedCount;
+        run.event.commit();
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - run.startNanos);
+        this.notifyListeners((listener) -> listener.runCompleted(appliedCount, duration));
+    }
+
+    @NotNull
+    Timing migrationStarted(@NotNull Migration migration) {
+        this.notifyListeners((listener) -> listener.migrationStarted(migration));
+
+        MigrationEvent event = new MigrationEvent();
+        event.migrationsTable = this.migrationsTable;
+        event.migrationId = migration.id();
+        event.begin();
+        return new Timing(migration, event, System.nanoTime());
+    }
+
+    /**
+     * Ends the timing without reporting it yet, for work that is only reported once its transaction commits.
+     *
+     * @param timing the timing to end
+     * @return the duration of the timed work
+     */
+    @NotNull
+    Duration stop(@NotNull Timing timing) {
+        timing.event.end();
+        return Duration.ofNanos(System.nanoTime() - timing.startNanos);
+    }
+
+    void migrationCompleted(@NotNull Timing timing) {
+        this.migrationCompleted(timing, this.stop(timing));
+    }
+
+    void migrationCompleted(@NotNull Timing timing, @NotNull Duration duration) {
+        timing.event.success = true;
+        timing.event.commit();
+
+        this.notifyListeners((listener) -> listener.migrationCompleted(timing.migration, duration));
+    }
+
+    void migrationFailed(@NotNull Timing timing, @NotNull Exception failure) {
+        this.migrationFailed(timing, this.stop(timing), failure);
+    }
+
+    void migrationFailed(@NotNull Timing timing, @NotNull Duration duration, @NotNull Exception failure) {
+        timing.event.success = false;
+        timing.event.commit();
+
+        this.notifyListeners((listener) -> listener.migrationFailed(timing.migration, duration, failure));
+    }
+
+    void statementExecuted(@NotNull Migration migration, @NotNull String statement, @NotNull Duration duration, long rowsAffected) {
+        this.notifyListeners((listener) -> listener.statementExecuted(migration, statement, duration, rowsAffected));
+    }
+
+    @NotNull
+    Timing bookkeepingStarted(@NotNull Migration migration) {
+        BookkeepingEvent event = new BookkeepingEvent();
+        event.migrationsTable = this.migrationsTable;
+        event.migrationId = migration.id();
+        event.begin();
+        return new Timing(migration, event, System.nanoTime());
+    }
+
+    void bookkeepingCompleted(@NotNull Timing timing) {
+        this.bookkeepingCompleted(timing, this.stop(timing));
+    }
+
+    void bookkeepingCompleted(@NotNull Timing timing, @NotNull Duration duration) {
+        timing.event.commit();
+
+        this.notifyListeners((listener) -> listener.bookkeepingCompleted(timing.migration, duration));
+    }
+
+    /**
+     * Calls every listener, logging exceptions instead of letting a broken listener fail the migration.
+     */
+    private void notifyListeners(@NotNull Consumer<MigrationListener> call) {
+        for (MigrationListener listener : this.listeners) {
+            try {
+                call.accept(listener);
+            } catch (RuntimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Migration listener " + listener.getClass().getName() + " threw an exception", e);
+            }
+        }
+    }
+
+    record Run(@NotNull RunEvent event, long startNanos) {
+    }
+
+    record Timing(@NotNull Migration migration, @NotNull MigrationEvent event, long startNanos) {
+    }
+
+    @Name("me.noahvdaa.schemashift.Run")
+    @Label("Migration Run")
+    @Category("SchemaShift")
+    @Description("A run of all pending migrations")
+    static class RunEvent extends Event {
+
+        @Label("Migrations Table")
+        String migrationsTable;
+
+        @Label("Pending Migrations")
+        int pendingCount;
+
+        @Label("Applied Migrations")
+        int appliedCount;
+
+    }
+
+    @Name("me.noahvdaa.schemashift.Migration")
+    @Label("Migration")
+    @Category("SchemaShift")
+    @Description("A single migration being applied")
+    static class MigrationEvent extends Event {
+
+        @Label("Migrations Table")
+        String migrationsTable;
+
+        @Label("Migration Id")
+        String migrationId;
+
+        @Label("Success")
+        boolean success;
+
+    }
+
+    @Name("me.noahvdaa.schemashift.Bookkeeping")
+    @Label("Migration Bookkeeping")
+    @Category("SchemaShift")
+    @Description("Recording a migration as applied in the meta table")
+    static class BookkeepingEvent extends MigrationEvent {
+    }
+
+}
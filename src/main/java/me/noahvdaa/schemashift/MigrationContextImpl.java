@@ -0,0 +1,95 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import me.noahvdaa.schemashift.migration.MigrationContext;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+
+@ApiStatus.Internal
+final class MigrationContextImpl implements MigrationContext {
+
+    private final ProgressStore progressStore;
+    private final Migration migration;
+    private final String migrationId;
+    private final Instrumentation instrumentation;
+    private final boolean checkpointStatements;
+    private boolean hasProgress = false;
+
+    MigrationContextImpl(@NotNull ProgressStore progressStore, @NotNull Migration migration, @NotNull Instrumentation instrumentation, boolean checkpointStatements) {
+        this.progressStore = Objects.requireNonNull(progressStore, "progressStore may not be null");
+        this.migration = Objects.requireNonNull(migration, "migration may not be null");
+        this.migrationId = migration.id();
+        this.instrumentation = Objects.requireNonNull(instrumentation, "instrumentation may not be null");
+        this.checkpointStatements = checkpointStatements;
+    }
+
+    @Nullable
+    @Override
+    public String progress() throws SQLException {
+        String progress = this.progressStore.get(this.migrationId);
+        if (progress != null)
+            this.hasProgress = true;
+        return progress;
+    }
+
+    @Override
+    public void saveProgress(@Nullable String progress) throws SQLException {
+        if (progress == null) {
+            this.progressStore.clear(this.migrationId);
+            this.hasProgress = false;
+            return;
+        }
+
+        this.progressStore.set(this.migrationId, progress);
+        this.hasProgress = true;
+    }
+
+    @Override
+    public boolean checkpointStatements() {
+        return this.checkpointStatements;
+    }
+
+    @Override
+    public void statementExecuted(@NotNull String statement, @NotNull Duration duration, long rowsAffected) {
+        this.instrumentation.statementExecuted(this.migration, statement, duration, rowsAffected);
+    }
+
+    /**
+     * Prepares for the migration to be applied. With statement checkpoints enabled, the progress
+     * table is created up front, so creating it doesn't commit the first checkpointed transaction.
+     *
+     * @throws SQLException if the progress table could not be created
+     */
+    void prepare() throws SQLException {
+        if (this.checkpointStatements)
+            this.progressStore.ensureTable();
+    }
+
+    /**
+     * Returns whether progress may be stored for the migration, including progress it never looked at,
+     * such as checkpoints of an earlier attempt that is retried with checkpoints disabled.
+     *
+     * @return whether progress may be stored for the migration
+     */
+    boolean mayHaveProgress() {
+        return this.hasProgress || this.progressStore.mayHaveProgress();
+    }
+
+    /**
+     * Removes any progress the migration left behind, after it has completed.
+     * Once the progress table is known not to exist, this no longer costs an extra query.
+     *
+     * @throws SQLException if the progress could not be removed
+     */
+    void complete() throws SQLException {
+        if (this.mayHaveProgress())
+            this.progressStore.clear(this.migrationId);
+        this.hasProgress = false;
+    }
+
+}
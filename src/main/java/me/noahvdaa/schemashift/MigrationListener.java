@@ -0,0 +1,88 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Receives events about migrations being applied, for example to record metrics.
+ * All methods do nothing by default, so only the relevant ones need to be implemented.
+ * <p>
+ * When migrations are applied in parallel, listeners may be called from multiple threads at
+ * the same time. Runtime exceptions thrown by a listener are logged through
+ * {@link System.Logger} and don't affect the migration.
+ * <p>
+ * Independent of any listeners, SchemaShift also emits JDK Flight Recorder events in
+ * the {@code SchemaShift} category.
+ */
+public interface MigrationListener {
+
+    /**
+     * Called before any pending migration is applied.
+     *
+     * @param pending the migrations that are about to be applied
+     */
+    default void runStarted(@NotNull List<Migration> pending) {
+    }
+
+    /**
+     * Called before a migration is applied.
+     *
+     * @param migration the migration that is about to be applied
+     */
+    default void migrationStarted(@NotNull Migration migration) {
+    }
+
+    /**
+     * Called after a single statement of a migration was executed.
+     * Only migrations that execute SQL scripts, such as those created
+     * from queries, files and resources, report their statements.
+     *
+     * @param migration    the migration the statement belongs to
+     * @param statement    the executed statement, or a description of the executed batch
+     * @param duration     the time it took to execute the statement
+     * @param rowsAffected the amount of affected rows, or -1 if unknown
+     */
+    default void statementExecuted(@NotNull Migration migration, @NotNull String statement, @NotNull Duration duration, long rowsAffected) {
+    }
+
+    /**
+     * Called after a migration was applied successfully.
+     *
+     * @param migration the migration that was applied
+     * @param duration  the time it took to apply the migration
+     */
+    default void migrationCompleted(@NotNull Migration migration, @NotNull Duration duration) {
+    }
+
+    /**
+     * Called after a migration failed to apply.
+     *
+     * @param migration the migration that failed
+     * @param duration  the time until the migration failed
+     * @param failure   the exception the migration failed with
+     */
+    default void migrationFailed(@NotNull Migration migration, @NotNull Duration duration, @NotNull Exception failure) {
+    }
+
+    /**
+     * Called after a migration was recorded as applied in the meta table.
+     *
+     * @param migration the migration that was recorded
+     * @param duration  the time it took to record the migration
+     */
+    default void bookkeepingCompleted(@NotNull Migration migration, @NotNull Duration duration) {
+    }
+
+    /**
+     * Called after a run of pending migrations ended, whether it succeeded or not.
+     *
+     * @param appliedCount the amount of migrations that were applied
+     * @param duration     the time the whole run took
+     */
+    default void runCompleted(int appliedCount, @NotNull Duration duration) {
+    }
+
+}
@@ -0,0 +1,215 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A lock that makes sure only one node applies migrations to a database at a time.
+ * <p>
+ * MySQL and MariaDB's {@code GET_LOCK} is used when available. The lock belongs to
+ * the connection, so it's released automatically if the node dies. Otherwise, a row
+ * in a companion lock table is used. Its timestamp is refreshed by {@link #heartbeat()},
+ * and a row that hasn't been refreshed for {@link #DEFAULT_STALE_AFTER} (or the configured
+ * duration) is considered stale and taken over.
+ */
+@ApiStatus.Internal
+final class MigrationLock {
+
+    static final Duration DEFAULT_STALE_AFTER = Duration.ofHours(1);
+    private static final int MAX_LOCK_NAME_LENGTH = 64;
+
+    private final static String GET_LOCK_QUERY = """
+        SELECT GET_LOCK(?, 0);
+        """;
+    private final static String RELEASE_LOCK_QUERY = """
+        SELECT RELEASE_LOCK(?);
+        """;
+    private final static String CREATE_LOCK_TABLE = """
+        CREATE TABLE IF NOT EXISTS `%s` (
+            `version` ENUM('1') NOT NULL PRIMARY KEY DEFAULT '1',
+            `owner` VARCHAR(36) NOT NULL,
+            `acquired_at` BIGINT NOT NULL
+        );
+        """;
+    private final static String INSERT_LOCK_QUERY = """
+        INSERT INTO `%s` (`owner`, `acquired_at`) VALUES (?, ?);
+        """;
+    private final static String DELETE_STALE_LOCK_QUERY = """
+        DELETE FROM `%s` WHERE `acquired_at` < ?;
+        """;
+    private final static String HEARTBEAT_QUERY = """
+        UPDATE `%s` SET `acquired_at` = ? WHERE `owner` = ?;
+        """;
+    private final static String DELETE_LOCK_QUERY = """
+        DELETE FROM `%s` WHERE `owner` = ?;
+        """;
+
+    private final Connection connection;
+    private final String migrationsTable;
+    private final String lockTable;
+    private final String owner = UUID.randomUUID().toString();
+    private boolean useLockTable = false;
+    private boolean lockTableCreated = false;
+    private boolean held = false;
+    private volatile Duration staleAfter = DEFAULT_STALE_AFTER;
+
+    MigrationLock(@NotNull Connection connection, @NotNull String migrationsTable) {
+        this.connection = Objects.requireNonNull(connection, "connection may not be null");
+        this.migrationsTable = Objects.requireNonNull(migrationsTable, "migrationsTable may not be null");
+        this.lockTable = tableName(migrationsTable);
+    }
+
+    @NotNull
+    static String tableName(@NotNull String migrationsTable) {
+        return migrationsTable + "_lock";
+    }
+
+    /**
+     * Tries to acquire the lock without waiting.
+     *
+     * @return whether the lock was acquired
+     * @throws SQLException if an error occurs while acquiring the lock
+     */
+    boolean tryAcquire() throws SQLException {
+        if (!this.useLockTable) {
+            try (PreparedStatement statement = this.connection.prepareStatement(GET_LOCK_QUERY)) {
+                statement.setString(1, this.lockName());
+
+                ResultSet resultSet = statement.executeQuery();
+                this.held = resultSet.next() && resultSet.getInt(1) == 1;
+                return this.held;
+            } catch (SQLException e) {
+                if (!isMissingFunction(e))
+                    throw e;
+                // GET_LOCK isn't supported by this database, fall back to the lock table.
+                this.useLockTable = true;
+            }
+        }
+
+        if (!this.lockTableCreated) {
+            try (Statement statement = this.connection.createStatement()) {
+                statement.execute(String.format(CREATE_LOCK_TABLE, this.lockTable));
+            }
+            this.lockTableCreated = true;
+        }
+
+        long now = System.currentTimeMillis();
+        try (PreparedStatement statement = this.connection.prepareStatement(String.format(DELETE_STALE_LOCK_QUERY, this.lockTable))) {
+            statement.setLong(1, now - this.staleAfter.toMillis());
+            statement.execute();
+        }
+
+        try (PreparedStatement statement = this.connection.prepareStatement(String.format(INSERT_LOCK_QUERY, this.lockTable))) {
+            statement.setString(1, this.owner);
+            statement.setLong(2, now);
+            statement.execute();
+            this.held = true;
+            return true;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false;
+        } catch (SQLException e) {
+            // Not every driver maps duplicate keys to SQLIntegrityConstraintViolationException.
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23"))
+                return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Sets how long a lock table row may go without a heartbeat before it's considered stale.
+     *
+     * @param staleAfter the duration after which the lock is considered stale
+     */
+    void staleAfter(@NotNull Duration staleAfter) {
+        Objects.requireNonNull(staleAfter, "staleAfter may not be null");
+        if (staleAfter.isNegative() || staleAfter.isZero())
+            throw new IllegalArgumentException("staleAfter must be positive");
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * Refreshes the timestamp of the lock table row, so other nodes don't consider it stale.
+     * Does nothing if the lock isn't held or {@code GET_LOCK} is used.
+     *
+     * @throws SQLException if the lock was taken over by another node, or an error occurs while refreshing it
+     */
+    void heartbeat() throws SQLException {
+        if (!this.held || !this.useLockTable)
+            return;
+
+        try (PreparedStatement statement = this.connection.prepareStatement(String.format(HEARTBEAT_QUERY, this.lockTable))) {
+            statement.setLong(1, System.currentTimeMillis());
+            statement.setString(2, this.owner);
+            if (statement.executeUpdate() == 0) {
+                this.held = false;
+                throw new SQLException("The migration lock on " + this.migrationsTable + " was considered stale and taken over by another node");
+            }
+        }
+    }
+
+    private static boolean isMissingFunction(@NotNull SQLException e) {
+        // MySQL and MariaDB: ER_SP_DOES_NOT_EXIST, H2: FUNCTION_NOT_FOUND_1.
+        return (e.getErrorCode() == 1305 && "42000".equals(e.getSQLState()))
+            || (e.getErrorCode() == 90022 && "90022".equals(e.getSQLState()));
+    }
+
+    /**
+     * Releases the lock, if it's held.
+     *
+     * @throws SQLException if an error occurs while releasing the lock
+     */
+    void release() throws SQLException {
+        if (!this.held)
+            return;
+
+        this.held = false;
+        if (this.useLockTable) {
+            try (PreparedStatement statement = this.connection.prepareStatement(String.format(DELETE_LOCK_QUERY, this.lockTable))) {
+                statement.setString(1, this.owner);
+                statement.execute();
+            }
+            return;
+        }
+
+        try (PreparedStatement statement = this.connection.prepareStatement(RELEASE_LOCK_QUERY)) {
+            statement.setString(1, this.lockName());
+            statement.executeQuery().close();
+        }
+    }
+
+    /**
+     * GET_LOCK names are server-wide, so include the schema in the name.
+     * Names that would exceed MySQL's limit are hashed.
+     */
+    @NotNull
+    private String lockName() throws SQLException {
+        String name = "schemashift:" + this.connection.getCatalog() + ":" + this.migrationsTable;
+        if (name.length() <= MAX_LOCK_NAME_LENGTH)
+            return name;
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hashed = new StringBuilder("schemashift:");
+            for (int i = 0; hashed.length() < MAX_LOCK_NAME_LENGTH - 1; i++) {
+                hashed.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return hashed.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+}
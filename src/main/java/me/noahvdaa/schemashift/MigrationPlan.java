@@ -0,0 +1,101 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The estimated impact of all pending migrations, as returned by {@link SchemaShift#plan()}.
+ * Estimates are based on table statistics from {@code information_schema}, which are approximate,
+ * and on {@code EXPLAIN} for data manipulation statements. They assume InnoDB on MySQL 8.0 or later.
+ */
+public final class MigrationPlan {
+
+    private final static int MAX_STATEMENT_LENGTH = 80;
+
+    private final List<PlannedMigration> migrations;
+
+    MigrationPlan(@NotNull List<PlannedMigration> migrations) {
+        this.migrations = List.copyOf(Objects.requireNonNull(migrations, "migrations may not be null"));
+    }
+
+    /**
+     * Returns all pending migrations, in the order they would be applied.
+     *
+     * @return the pending migrations
+     */
+    @NotNull
+    public List<PlannedMigration> migrations() {
+        return this.migrations;
+    }
+
+    /**
+     * Returns the pending migrations with at least the specified risk.
+     *
+     * @param risk the minimum risk
+     * @return the pending migrations with at least the specified risk
+     */
+    @NotNull
+    public List<PlannedMigration> atLeast(@NotNull Risk risk) {
+        Objects.requireNonNull(risk, "risk may not be null");
+        return this.migrations.stream().filter((migration) -> migration.risk().compareTo(risk) >= 0).toList();
+    }
+
+    /**
+     * Returns the highest risk of all pending migrations.
+     *
+     * @return the risk of applying all pending migrations
+     */
+    @NotNull
+    public Risk risk() {
+        Risk risk = Risk.LOW;
+        for (PlannedMigration migration : this.migrations) {
+            if (migration.risk().compareTo(risk) > 0)
+                risk = migration.risk();
+        }
+        return risk;
+    }
+
+    /**
+     * Returns whether there are no pending migrations.
+     *
+     * @return whether there are no pending migrations
+     */
+    public boolean isEmpty() {
+        return this.migrations.isEmpty();
+    }
+
+    /**
+     * Returns a human-readable report of this plan, listing every statement that isn't low risk.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(this.migrations.size()).append(" pending migration(s), highest risk ").append(this.risk()).append('\n');
+        for (PlannedMigration migration : this.migrations) {
+            report.append(migration.risk()).append('\t').append(migration.migration().id()).append('\n');
+            for (StatementEstimate statement : migration.statements()) {
+                if (statement.risk() == Risk.LOW)
+                    continue;
+
+                report.append('\t').append(statement.risk()).append('\t').append(abbreviate(statement.statement()));
+                if (statement.table() != null && statement.tableRows() >= 0)
+                    report.append(" (").append(statement.table()).append(": ~").append(statement.tableRows()).append(" rows, ~").append(statement.tableBytes() / (1024 * 1024)).append(" MiB)");
+                if (statement.examinedRows() >= 0)
+                    report.append(" (examines ~").append(statement.examinedRows()).append(" rows)");
+                report.append(": ").append(statement.reason()).append('\n');
+            }
+        }
+        return report.toString();
+    }
+
+    @NotNull
+    private static String abbreviate(@NotNull String statement) {
+        String singleLine = statement.replaceAll("\\s+", " ").strip();
+        return singleLine.length() > MAX_STATEMENT_LENGTH ? singleLine.substring(0, MAX_STATEMENT_LENGTH - 3) + "..." : singleLine;
+    }
+
+}
@@ -0,0 +1,323 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import me.noahvdaa.schemashift.migration.MigrationSource;
+import me.noahvdaa.schemashift.migration.SqlScriptReader;
+import me.noahvdaa.schemashift.migration.SqlStatements;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates the impact of pending migrations without applying them.
+ * <p>
+ * Schema changes are classified by what InnoDB on MySQL 8.0 does for them: changes that only
+ * touch metadata are cheap regardless of the table's size, while index builds, table rebuilds
+ * and table copies take longer the larger the table is, and table copies block writes.
+ * Data manipulation statements are estimated with {@code EXPLAIN}.
+ */
+@ApiStatus.Internal
+final class MigrationPlanner {
+
+    private final static String TABLE_STATS_QUERY = """
+        SELECT `TABLE_ROWS`, `DATA_LENGTH` + `INDEX_LENGTH` FROM `information_schema`.`TABLES` WHERE `TABLE_SCHEMA` = COALESCE(?, DATABASE()) AND `TABLE_NAME` = ?;
+        """;
+    private final static String IDENTIFIER = "(`(?:[^`]|``)+`|[\\w$]+)(?:\\s*\\.\\s*(`(?:[^`]|``)+`|[\\w$]+))?";
+    private final static Pattern ALTER_TABLE = pattern("^ALTER\\s+(?:ONLINE\\s+|IGNORE\\s+)*TABLE\\s+" + IDENTIFIER);
+    private final static Pattern CREATE_TABLE = pattern("^CREATE\\s+(?:TEMPORARY\\s+)?TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + IDENTIFIER);
+    private final static Pattern CREATE_INDEX = pattern("^CREATE\\s+(?:ONLINE\\s+|OFFLINE\\s+)?(UNIQUE\\s+|FULLTEXT\\s+|SPATIAL\\s+)?INDEX\\s+\\S+\\s+(?:USING\\s+\\w+\\s+)?ON\\s+" + IDENTIFIER);
+    private final static Pattern DROP_TABLE = pattern("^(?:DROP\\s+(?:TEMPORARY\\s+)?TABLE\\s+(?:IF\\s+EXISTS\\s+)?|TRUNCATE\\s+(?:TABLE\\s+)?)" + IDENTIFIER);
+    private final static Pattern INSERT_SELECT = pattern("\\bSELECT\\b");
+
+    // Table copies, which block writes for their whole duration.
+    private final static Pattern COPY = pattern("\\bALGORITHM\\s*=?\\s*COPY\\b|\\bCONVERT\\s+TO\\s+CHARACTER\\s+SET\\b|\\bMODIFY\\b|\\bCHANGE\\b|\\bADD\\s+(?:CONSTRAINT\\s+\\S+\\s+)?FOREIGN\\s+KEY\\b|\\bADD\\s+(?:FULLTEXT|SPATIAL)\\b");
+    private final static Pattern DROP_PRIMARY_KEY = pattern("\\bDROP\\s+PRIMARY\\s+KEY\\b");
+    // Online rebuilds, which rewrite the whole table but allow concurrent writes.
+    private final static Pattern REBUILD = pattern("\\bDROP\\s+(?:COLUMN\\s+)?(?!INDEX\\b|KEY\\b|FOREIGN\\b|PRIMARY\\b|CONSTRAINT\\b|CHECK\\b|PARTITION\\b|DEFAULT\\b)[`\\w$]|\\bADD\\s+(?:CONSTRAINT\\s+\\S+\\s+)?PRIMARY\\s+KEY\\b|\\bENGINE\\b|\\bROW_FORMAT\\b|\\bFORCE\\b|\\bORDER\\s+BY\\b|\\bKEY_BLOCK_SIZE\\b");
+    // Online index builds, which read the whole table but allow concurrent writes.
+    private final static Pattern INDEX = pattern("\\bADD\\s+(?:CONSTRAINT\\s+\\S+\\s+)?(?:UNIQUE|INDEX|KEY)\\b");
+    private final static Pattern INSTANT = pattern("\\bALGORITHM\\s*=?\\s*INSTANT\\b");
+
+    private final static long LARGE_TABLE_ROWS = 1_000_000;
+    private final static long LARGE_TABLE_BYTES = 1024L * 1024 * 1024;
+    private final static long MEDIUM_TABLE_ROWS = 10_000;
+    private final static long MEDIUM_TABLE_BYTES = 100L * 1024 * 1024;
+    private final static int MAX_STATEMENT_LENGTH = 1_000;
+
+    private final Connection connection;
+    private final Map<String, TableStats> tableStats = new HashMap<>();
+    private final Set<String> createdTables = new HashSet<>();
+
+    MigrationPlanner(@NotNull Connection connection) {
+        this.connection = Objects.requireNonNull(connection, "connection may not be null");
+    }
+
+    @NotNull
+    MigrationPlan plan(@NotNull List<Migration> pending) throws SQLException {
+        List<PlannedMigration> planned = new ArrayList<>(pending.size());
+        for (Migration migration : pending) {
+            planned.add(new PlannedMigration(migration, this.estimate(migration)));
+        }
+        return new MigrationPlan(planned);
+    }
+
+    @NotNull
+    private List<StatementEstimate> estimate(@NotNull Migration migration) throws SQLException {
+        MigrationSource source = migration.source();
+        if (source == null)
+            return List.of(new StatementEstimate(migration.getClass().getSimpleName(), null, -1, -1, -1, Risk.MEDIUM, "not a SQL script, so its impact can't be estimated"));
+
+        List<StatementEstimate> estimates = new ArrayList<>();
+        try (SqlScriptReader script = new SqlScriptReader(source.openReader())) {
+            // Plain inserts don't read existing rows, so they're grouped instead of explained one by one.
+            int inserts = 0;
+            String sql;
+            while ((sql = script.next()) != null) {
+                if (isPlainInsert(sql)) {
+                    inserts++;
+                    continue;
+                }
+
+                if (inserts > 0) {
+                    estimates.add(insertsEstimate(inserts));
+                    inserts = 0;
+                }
+                estimates.add(this.estimate(sql));
+            }
+
+            if (inserts > 0)
+                estimates.add(insertsEstimate(inserts));
+        } catch (IOException e) {
+            throw new SQLException("Failed to read migration " + migration.id() + " from " + source, e);
+        }
+        return estimates;
+    }
+
+    @NotNull
+    private StatementEstimate estimate(@NotNull String sql) throws SQLException {
+        String keyword = SqlStatements.firstKeyword(sql);
+        String statement = sql.strip();
+        if (keyword == null)
+            return low(statement, "doesn't change the schema");
+
+        return switch (keyword) {
+            case "ALTER" -> this.estimateAlter(statement);
+            case "CREATE" -> this.estimateCreate(statement);
+            case "DROP", "TRUNCATE" -> this.estimateDrop(statement);
+            case "INSERT", "REPLACE", "UPDATE", "DELETE" -> this.estimateDml(statement);
+            default -> low(statement, "doesn't change tables");
+        };
+    }
+
+    @NotNull
+    private StatementEstimate estimateAlter(@NotNull String statement) throws SQLException {
+        Matcher matcher = ALTER_TABLE.matcher(statement);
+        if (!matcher.find())
+            return low(statement, "doesn't change tables");
+
+        String table = tableName(matcher);
+        TableStats stats = this.tableStats(matcher);
+        if (INSTANT.matcher(statement).find())
+            return estimate(statement, table, stats, Risk.LOW, "uses ALGORITHM=INSTANT, so it only changes metadata");
+
+        if (COPY.matcher(statement).find() || (DROP_PRIMARY_KEY.matcher(statement).find() && !REBUILD.matcher(statement).find())) {
+            Risk risk = stats.isEmpty() ? Risk.LOW : stats.rows() >= MEDIUM_TABLE_ROWS || stats.bytes() >= MEDIUM_TABLE_BYTES ? Risk.HIGH : Risk.MEDIUM;
+            return estimate(statement, table, stats, risk, "likely copies the table, blocking writes until it's done");
+        }
+        if (REBUILD.matcher(statement).find())
+            return estimate(statement, table, stats, sizeRisk(stats), "rebuilds the table, which takes long on large tables");
+        if (INDEX.matcher(statement).find())
+            return estimate(statement, table, stats, sizeRisk(stats) == Risk.HIGH ? Risk.MEDIUM : Risk.LOW, "builds an index online, reading every row");
+
+        return estimate(statement, table, stats, Risk.LOW, "likely only changes metadata, but still waits for running queries on the table");
+    }
+
+    @NotNull
+    private StatementEstimate estimateCreate(@NotNull String statement) throws SQLException {
+        Matcher matcher = CREATE_TABLE.matcher(statement);
+        if (matcher.find()) {
+            this.createdTables.add(tableKey(matcher));
+            return low(statement, "creates a new table");
+        }
+
+        matcher = CREATE_INDEX.matcher(statement);
+        if (!matcher.find())
+            return low(statement, "doesn't change existing tables");
+
+        String table = tableName(matcher, 2);
+        TableStats stats = this.tableStats(matcher, 2);
+        if (matcher.group(1) != null && !matcher.group(1).strip().equalsIgnoreCase("UNIQUE")) {
+            Risk risk = stats.isEmpty() ? Risk.LOW : stats.rows() >= MEDIUM_TABLE_ROWS || stats.bytes() >= MEDIUM_TABLE_BYTES ? Risk.HIGH : Risk.MEDIUM;
+            return estimate(statement, table, stats, risk, "builds a full-text or spatial index, blocking writes until it's done");
+        }
+        return estimate(statement, table, stats, sizeRisk(stats) == Risk.HIGH ? Risk.MEDIUM : Risk.LOW, "builds an index online, reading every row");
+    }
+
+    @NotNull
+    private StatementEstimate estimateDrop(@NotNull String statement) throws SQLException {
+        Matcher matcher = DROP_TABLE.matcher(statement);
+        if (!matcher.find())
+            return low(statement, "only changes metadata");
+
+        TableStats stats = this.tableStats(matcher);
+        Risk risk = sizeRisk(stats) == Risk.HIGH ? Risk.MEDIUM : Risk.LOW;
+        return estimate(statement, tableName(matcher), stats, risk, "removes all rows of the table, which can briefly stall the server for large tables");
+    }
+
+    @NotNull
+    private StatementEstimate estimateDml(@NotNull String statement) throws SQLException {
+        long examinedRows = 0;
+        boolean fullScan = false;
+        String table = null;
+        try (Statement explain = this.connection.createStatement()) {
+            ResultSet resultSet = explain.executeQuery("EXPLAIN " + statement);
+            while (resultSet.next()) {
+                examinedRows += Math.max(resultSet.getLong("rows"), 0);
+                if ("ALL".equalsIgnoreCase(resultSet.getString("type")))
+                    fullScan = true;
+                if (table == null)
+                    table = resultSet.getString("table");
+            }
+        } catch (SQLException e) {
+            if (SqlStatements.isNoSuchTable(e))
+                return low(statement, "affects a table that doesn't exist yet");
+            return new StatementEstimate(abbreviate(statement), null, -1, -1, -1, Risk.MEDIUM, "could not be explained: " + e.getMessage());
+        }
+
+        String scan = fullScan ? " with a full table scan" : "";
+        if (examinedRows >= LARGE_TABLE_ROWS)
+            return new StatementEstimate(abbreviate(statement), table, -1, -1, examinedRows, Risk.HIGH, "examines many rows" + scan + " in a single transaction, holding locks until it commits; consider a backfill migration");
+        if (examinedRows >= MEDIUM_TABLE_ROWS)
+            return new StatementEstimate(abbreviate(statement), table, -1, -1, examinedRows, Risk.MEDIUM, "examines a fair amount of rows" + scan);
+        return new StatementEstimate(abbreviate(statement), table, -1, -1, examinedRows, Risk.LOW, "examines few rows");
+    }
+
+    @NotNull
+    private TableStats tableStats(@NotNull Matcher matcher) throws SQLException {
+        return this.tableStats(matcher, 1);
+    }
+
+    /**
+     * Looks up the approximate size of the table matched by the identifier at the specified group.
+     * Tables created by earlier pending migrations don't exist yet, so they're assumed to be empty.
+     */
+    @NotNull
+    private TableStats tableStats(@NotNull Matcher matcher, int group) throws SQLException {
+        String key = tableKey(matcher, group);
+        if (this.createdTables.contains(key))
+            return TableStats.EMPTY;
+
+        TableStats cached = this.tableStats.get(key);
+        if (cached != null)
+            return cached;
+
+        String schema = matcher.group(group + 1) == null ? null : unquote(matcher.group(group));
+        String table = unquote(matcher.group(group + 1) == null ? matcher.group(group) : matcher.group(group + 1));
+        TableStats stats = TableStats.EMPTY;
+        try (PreparedStatement statement = this.connection.prepareStatement(TABLE_STATS_QUERY)) {
+            statement.setString(1, schema);
+            statement.setString(2, table);
+            ResultSet resultSet = statement.executeQuery();
+            if (resultSet.next())
+                stats = new TableStats(resultSet.getLong(1), resultSet.getLong(2));
+        }
+        this.tableStats.put(key, stats);
+        return stats;
+    }
+
+    private static boolean isPlainInsert(@NotNull String sql) {
+        String keyword = SqlStatements.firstKeyword(sql);
+        return ("INSERT".equals(keyword) || "REPLACE".equals(keyword)) && !INSERT_SELECT.matcher(sql).find();
+    }
+
+    @NotNull
+    private static StatementEstimate insertsEstimate(int inserts) {
+        return new StatementEstimate(inserts + " INSERT statement(s)", null, -1, -1, -1, Risk.LOW, "inserts rows without reading existing ones");
+    }
+
+    @NotNull
+    private static StatementEstimate low(@NotNull String statement, @NotNull String reason) {
+        return new StatementEstimate(abbreviate(statement), null, -1, -1, -1, Risk.LOW, reason);
+    }
+
+    @NotNull
+    private static StatementEstimate estimate(@NotNull String statement, @NotNull String table, @NotNull TableStats stats, @NotNull Risk risk, @NotNull String reason) {
+        return new StatementEstimate(abbreviate(statement), table, stats.rows(), stats.bytes(), -1, risk, reason);
+    }
+
+    @NotNull
+    private static Risk sizeRisk(@NotNull TableStats stats) {
+        if (stats.rows() >= LARGE_TABLE_ROWS || stats.bytes() >= LARGE_TABLE_BYTES)
+            return Risk.HIGH;
+        if (stats.rows() >= MEDIUM_TABLE_ROWS || stats.bytes() >= MEDIUM_TABLE_BYTES)
+            return Risk.MEDIUM;
+        return Risk.LOW;
+    }
+
+    @NotNull
+    private static String tableName(@NotNull Matcher matcher) {
+        return tableName(matcher, 1);
+    }
+
+    @NotNull
+    private static String tableName(@NotNull Matcher matcher, int group) {
+        return matcher.group(group + 1) == null ? unquote(matcher.group(group)) : unquote(matcher.group(group)) + "." + unquote(matcher.group(group + 1));
+    }
+
+    @NotNull
+    private static String tableKey(@NotNull Matcher matcher) {
+        return tableKey(matcher, 1);
+    }
+
+    @NotNull
+    private static String tableKey(@NotNull Matcher matcher, int group) {
+        // Only the table name is compared, as statements may or may not qualify tables with the schema.
+        String table = matcher.group(group + 1) == null ? matcher.group(group) : matcher.group(group + 1);
+        return unquote(table).toLowerCase(Locale.ROOT);
+    }
+
+    @NotNull
+    private static String unquote(@NotNull String identifier) {
+        if (identifier.length() >= 2 && identifier.startsWith("`") && identifier.endsWith("`"))
+            return identifier.substring(1, identifier.length() - 1).replace("``", "`");
+        return identifier;
+    }
+
+    @NotNull
+    private static String abbreviate(@NotNull String statement) {
+        return statement.length() > MAX_STATEMENT_LENGTH ? statement.substring(0, MAX_STATEMENT_LENGTH) : statement;
+    }
+
+    @NotNull
+    private static Pattern pattern(@NotNull String regex) {
+        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+    }
+
+    private record TableStats(long rows, long bytes) {
+
+        static final TableStats EMPTY = new TableStats(0, 0);
+
+        boolean isEmpty() {
+            return this.rows == 0 && this.bytes == 0;
+        }
+
+    }
+
+}
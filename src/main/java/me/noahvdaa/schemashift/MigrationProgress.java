@@ -0,0 +1,38 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A snapshot of the progress of the current or most recent migration run.
+ *
+ * @param total     the amount of migrations that were pending when the run started
+ * @param completed the amount of migrations that were applied so far
+ * @param running   the ids of the migrations that are being applied right now
+ */
+public record MigrationProgress(int total, int completed, @NotNull List<String> running) {
+
+    /**
+     * Creates a new progress snapshot.
+     *
+     * @param total     the amount of migrations that were pending when the run started
+     * @param completed the amount of migrations that were applied so far
+     * @param running   the ids of the migrations that are being applied right now
+     */
+    public MigrationProgress {
+        running = List.copyOf(Objects.requireNonNull(running, "running may not be null"));
+    }
+
+    /**
+     * Returns the completed fraction of the run, between 0 and 1.
+     * A run without pending migrations is complete.
+     *
+     * @return the completed fraction of the run
+     */
+    public double fraction() {
+        return this.total == 0 ? 1 : (double) this.completed / this.total;
+    }
+
+}
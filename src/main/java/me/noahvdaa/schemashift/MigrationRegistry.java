@@ -0,0 +1,154 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An insertion-ordered list of migrations, indexed by id.
+ * Registering a migration and looking up its position are both constant-time.
+ * Migrations are never removed, so the index of a migration never changes.
+ */
+@ApiStatus.Internal
+final class MigrationRegistry {
+
+    private final ArrayList<Migration> migrations;
+    private final Map<String, Integer> indices;
+    private BaselineMigration baseline;
+
+    MigrationRegistry() {
+        this.migrations = new ArrayList<>();
+        this.indices = new HashMap<>();
+    }
+
+    private MigrationRegistry(@NotNull MigrationRegistry other) {
+        this.migrations = new ArrayList<>(other.migrations);
+        this.indices = new HashMap<>(other.indices);
+        this.baseline = other.baseline;
+    }
+
+    void register(@NotNull Migration migration) {
+        Objects.requireNonNull(migration, "migration may not be null");
+        for (String dependency : migration.dependencies()) {
+            if (!this.indices.containsKey(dependency))
+                throw new IllegalArgumentException("Migration '" + migration.id() + "' depends on '" + dependency + "', which must be registered before it");
+        }
+
+        Integer existing = this.indices.putIfAbsent(migration.id(), this.migrations.size());
+        if (existing != null)
+            throw new IllegalArgumentException("A migration with the id '" + migration.id() + "' is already registered");
+
+        this.migrations.add(migration);
+    }
+
+    void registerAll(@NotNull List<Migration> migrations) {
+        Objects.requireNonNull(migrations, "migrations may not be null");
+        this.migrations.ensureCapacity(this.migrations.size() + migrations.size());
+        for (Migration migration : migrations) {
+            this.register(migration);
+        }
+    }
+
+    void registerBaseline(@NotNull Migration snapshot, @NotNull String equivalentId) {
+        Objects.requireNonNull(snapshot, "snapshot may not be null");
+        Objects.requireNonNull(equivalentId, "equivalentId may not be null");
+        if (this.baseline != null)
+            throw new IllegalStateException("A baseline equivalent to '" + this.baseline.id() + "' is already registered");
+
+        this.baseline = new BaselineMigration(snapshot, equivalentId);
+    }
+
+    /**
+     * Returns the migrations to apply to a database without any applied migrations.
+     * If a baseline is registered, that's the baseline followed by all migrations
+     * after the one it's equivalent to, otherwise it's all migrations.
+     *
+     * @return the migrations to apply to an empty database
+     */
+    @NotNull
+    List<Migration> fromScratch() {
+        if (this.baseline == null)
+            return this.view();
+
+        List<Migration> after = this.after(this.baseline.id());
+        if (after == null)
+            throw new IllegalStateException("The baseline is equivalent to '" + this.baseline.id() + "', which is not registered");
+
+        List<Migration> migrations = new ArrayList<>(after.size() + 1);
+        migrations.add(this.baseline);
+        migrations.addAll(after);
+        return Collections.unmodifiableList(migrations);
+    }
+
+    /**
+     * Returns the registration index of the migration with the specified id,
+     * or -1 if no such migration is registered.
+     *
+     * @param id the migration id
+     * @return the index of the migration, or -1
+     */
+    int indexOf(@NotNull String id) {
+        Integer index = this.indices.get(id);
+        return index == null ? -1 : index;
+    }
+
+    @Nullable
+    String lastId() {
+        return this.migrations.isEmpty() ? null : this.migrations.get(this.migrations.size() - 1).id();
+    }
+
+    int size() {
+        return this.migrations.size();
+    }
+
+    /**
+     * Returns an independent copy of this registry, so it can be shared
+     * with other threads while this registry is still being modified.
+     *
+     * @return the copy
+     */
+    @NotNull
+    MigrationRegistry snapshot() {
+        return new MigrationRegistry(this);
+    }
+
+    @NotNull
+    List<Migration> copy() {
+        return List.copyOf(this.migrations);
+    }
+
+    /**
+     * Returns an unmodifiable view of all registered migrations.
+     *
+     * @return all registered migrations
+     */
+    @NotNull
+    List<Migration> view() {
+        return Collections.unmodifiableList(this.migrations);
+    }
+
+    /**
+     * Returns an unmodifiable view of all migrations registered after the
+     * migration with the specified id, or null if no such migration is registered.
+     *
+     * @param id the migration id
+     * @return all migrations after the specified migration, or null
+     */
+    @Nullable
+    List<Migration> after(@NotNull String id) {
+        int index = this.indexOf(id);
+        if (index == -1)
+            return null;
+
+        return Collections.unmodifiableList(this.migrations.subList(index + 1, this.migrations.size()));
+    }
+
+}
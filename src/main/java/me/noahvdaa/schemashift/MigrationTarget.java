@@ -0,0 +1,57 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A single database that should be migrated by a {@link SchemaShiftFleet}.
+ * A target is identified by the schema to switch the connection to (or null to
+ * use the connection's default schema) and the name of the table that keeps
+ * track of applied migrations.
+ *
+ * @param schema          the schema to migrate, or null to use the connection's default schema
+ * @param migrationsTable the name of the table that keeps track of applied migrations
+ */
+public record MigrationTarget(@Nullable String schema, @NotNull String migrationsTable) {
+
+    /**
+     * Creates a new target.
+     *
+     * @param schema          the schema to migrate, or null to use the connection's default schema
+     * @param migrationsTable the name of the table that keeps track of applied migrations
+     */
+    public MigrationTarget {
+        Objects.requireNonNull(migrationsTable, "migrationsTable may not be null");
+    }
+
+    /**
+     * Creates a target for the specified schema, using the default migrations table.
+     *
+     * @param schema the schema to migrate
+     * @return the new target
+     */
+    @NotNull
+    public static MigrationTarget schema(@NotNull String schema) {
+        Objects.requireNonNull(schema, "schema may not be null");
+        return new MigrationTarget(schema, SchemaShiftImpl.DEFAULT_MIGRATIONS_TABLE);
+    }
+
+    /**
+     * Creates a target for the connection's default schema, using the specified migrations table.
+     *
+     * @param migrationsTable the name of the table that keeps track of applied migrations
+     * @return the new target
+     */
+    @NotNull
+    public static MigrationTarget table(@NotNull String migrationsTable) {
+        return new MigrationTarget(null, migrationsTable);
+    }
+
+    @Override
+    public String toString() {
+        return this.schema == null ? this.migrationsTable : this.schema + "." + this.migrationsTable;
+    }
+
+}
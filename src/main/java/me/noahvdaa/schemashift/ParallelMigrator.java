@@ -0,0 +1,204 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies pending migrations in parallel, respecting their declared dependencies.
+ * <p>
+ * Migrations run on their own connections, while all bookkeeping happens on the
+ * main connection. The meta table is advanced to the last migration of the longest
+ * completed prefix; migrations that complete before an earlier migration are marked
+ * as applied in the progress store, so a later run skips them.
+ */
+@ApiStatus.Internal
+final class ParallelMigrator {
+
+    private final SchemaShiftImpl schemaShift;
+    private final String migrationsTable;
+    private final ConnectionSupplier connectionSupplier;
+    private final int parallelism;
+    private final AtomicInteger appliedCount = new AtomicInteger();
+
+    ParallelMigrator(@NotNull SchemaShiftImpl schemaShift, @NotNull String migrationsTable, @NotNull ConnectionSupplier connectionSupplier, int parallelism) {
+        this.schemaShift = Objects.requireNonNull(schemaShift, "schemaShift may not be null");
+        this.migrationsTable = Objects.requireNonNull(migrationsTable, "migrationsTable may not be null");
+        this.connectionSupplier = Objects.requireNonNull(connectionSupplier, "connectionSupplier may not be null");
+        this.parallelism = parallelism;
+    }
+
+    int appliedCount() {
+        return this.appliedCount.get();
+    }
+
+    void migrate(@NotNull List<Migration> pending, @NotNull Set<String> appliedOutOfOrder) throws SQLException {
+        int count = pending.size();
+        int[][] dependencies = this.resolveDependencies(pending);
+        boolean[] started = new boolean[count];
+        boolean[] completed = new boolean[count];
+        boolean[] leftProgress = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            if (appliedOutOfOrder.contains(pending.get(i).id())) {
+                started[i] = true;
+                completed[i] = true;
+                leftProgress[i] = true;
+            }
+        }
+
+        ProgressStore progressStore = this.schemaShift.progressStore();
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, Threads.factory("SchemaShift-migrate"));
+        CompletionService<Outcome> completion = new ExecutorCompletionService<>(executor);
+        int watermark = 0;
+        int running = 0;
+        Exception failure = null;
+
+        try (PreparedStatement updateLastMigrationStatement = this.schemaShift.prepareUpdateLastMigration()) {
+            while (true) {
+                watermark = this.advance(pending, completed, leftProgress, watermark, updateLastMigrationStatement, progressStore);
+
+                if (failure == null) {
+                    for (int i = watermark; i < count && running < this.parallelism; i++) {
+                        if (started[i] || !isReady(i, dependencies[i], completed, watermark))
+                            continue;
+
+                        int index = i;
+                        Migration migration = pending.get(index);
+                        started[index] = true;
+                        running++;
+                        completion.submit(() -> this.apply(index, migration));
+                    }
+                }
+
+                if (running == 0)
+                    break;
+
+                Outcome outcome;
+                try {
+                    outcome = completion.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while applying migrations", e);
+                } catch (ExecutionException e) {
+                    // Outcomes capture everything but errors.
+                    if (e.getCause() instanceof Error error)
+                        throw error;
+                    throw new IllegalStateException(e.getCause());
+                }
+                running--;
+
+                if (outcome.failure() != null) {
+                    if (failure == null) {
+                        failure = outcome.failure();
+                    } else {
+                        failure.addSuppressed(outcome.failure());
+                    }
+                    continue;
+                }
+
+                completed[outcome.index()] = true;
+                leftProgress[outcome.index()] = outcome.leftProgress();
+                if (outcome.index() > watermark) {
+                    progressStore.markApplied(pending.get(outcome.index()).id());
+                    leftProgress[outcome.index()] = true;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (failure instanceof SQLException sqlException)
+            throw sqlException;
+        if (failure instanceof RuntimeException runtimeException)
+            throw runtimeException;
+    }
+
+    /**
+     * Records every migration of the completed prefix as applied.
+     *
+     * @return the new watermark, the amount of migrations in the completed prefix
+     */
+    private int advance(@NotNull List<Migration> pending, boolean @NotNull [] completed, boolean @NotNull [] leftProgress, int watermark, @NotNull PreparedStatement updateLastMigrationStatement, @NotNull ProgressStore progressStore) throws SQLException {
+        int previous = watermark;
+        while (watermark < completed.length && completed[watermark]) {
+            watermark++;
+        }
+        if (watermark == previous)
+            return watermark;
+
+        this.schemaShift.updateLastMigration(updateLastMigrationStatement, pending.get(watermark - 1));
+        for (int i = previous; i < watermark; i++) {
+            if (leftProgress[i])
+                progressStore.clear(pending.get(i).id());
+        }
+        return watermark;
+    }
+
+    @NotNull
+    private Outcome apply(int index, @NotNull Migration migration) {
+        try (Connection connection = this.connectionSupplier.get()) {
+            MigrationContextImpl context = this.schemaShift.createContext(new ProgressStore(connection, this.migrationsTable), migration);
+            this.schemaShift.applyMigration(migration, connection, context);
+            this.appliedCount.incrementAndGet();
+            return new Outcome(index, context.mayHaveProgress(), null);
+        } catch (SQLException | RuntimeException e) {
+            return new Outcome(index, false, e);
+        }
+    }
+
+    /**
+     * Resolves the dependencies of every pending migration to indices in the pending list.
+     * Dependencies on migrations that were already applied are dropped, dependencies on
+     * migrations covered by a pending baseline are resolved to that baseline, and migrations
+     * without declared dependencies get a null entry, meaning they wait for all earlier migrations.
+     */
+    private int @NotNull [] @Nullable [] resolveDependencies(@NotNull List<Migration> pending) {
+        MigrationRegistry registry = this.schemaShift.registry();
+        int offset = registry.indexOf(pending.get(0).id());
+        // Migrations covered by a baseline aren't applied yet, so depending on them means depending on the baseline.
+        int coveredIndex = pending.get(0) instanceof BaselineMigration ? 0 : -1;
+
+        int[][] dependencies = new int[pending.size()][];
+        for (int i = 0; i < pending.size(); i++) {
+            Set<String> declared = pending.get(i).dependencies();
+            if (declared.isEmpty())
+                continue;
+
+            // The registry guarantees dependencies are registered before their dependents.
+            dependencies[i] = declared.stream()
+                .mapToInt((dependency) -> Math.max(registry.indexOf(dependency) - offset, coveredIndex))
+                .filter((index) -> index >= 0)
+                .toArray();
+        }
+        return dependencies;
+    }
+
+    private static boolean isReady(int index, int @Nullable [] dependencies, boolean @NotNull [] completed, int watermark) {
+        if (dependencies == null)
+            return watermark >= index;
+
+        for (int dependency : dependencies) {
+            if (!completed[dependency])
+                return false;
+        }
+        return true;
+    }
+
+    private record Outcome(int index, boolean leftProgress, @Nullable Exception failure) {
+    }
+
+}
@@ -0,0 +1,43 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A pending migration together with the estimated impact of its statements.
+ *
+ * @param migration  the pending migration
+ * @param statements the estimates of the migration's statements, in execution order
+ */
+public record PlannedMigration(@NotNull Migration migration, @NotNull List<StatementEstimate> statements) {
+
+    /**
+     * Creates a new planned migration.
+     *
+     * @param migration  the pending migration
+     * @param statements the estimates of the migration's statements, in execution order
+     */
+    public PlannedMigration {
+        Objects.requireNonNull(migration, "migration may not be null");
+        statements = List.copyOf(Objects.requireNonNull(statements, "statements may not be null"));
+    }
+
+    /**
+     * Returns the highest risk of all statements of this migration.
+     *
+     * @return the risk of this migration
+     */
+    @NotNull
+    public Risk risk() {
+        Risk risk = Risk.LOW;
+        for (StatementEstimate statement : this.statements) {
+            if (statement.risk().compareTo(risk) > 0)
+                risk = statement.risk();
+        }
+        return risk;
+    }
+
+}
@@ -0,0 +1,156 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.SqlStatements;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Stores the progress of migrations that haven't completed yet.
+ * The meta table only holds a single row, so progress lives in a companion
+ * table named after it, which is only created once progress is first saved.
+ */
+@ApiStatus.Internal
+final class ProgressStore {
+
+    private final static String CREATE_PROGRESS_TABLE = """
+        CREATE TABLE IF NOT EXISTS `%s` (
+            `migration_id` VARCHAR(255) NOT NULL PRIMARY KEY,
+            `progress` TEXT NOT NULL
+        );
+        """;
+    private final static String SELECT_PROGRESS_QUERY = """
+        SELECT `progress` FROM `%s` WHERE `migration_id` = ?;
+        """;
+    private final static String UPDATE_PROGRESS_QUERY = """
+        INSERT INTO `%s` (`migration_id`, `progress`) VALUES (?, ?) ON DUPLICATE KEY UPDATE `progress` = ?;
+        """;
+    private final static String DELETE_PROGRESS_QUERY = """
+        DELETE FROM `%s` WHERE `migration_id` = ?;
+        """;
+    private final static String SELECT_APPLIED_QUERY = """
+        SELECT `migration_id` FROM `%s` WHERE `progress` = ?;
+        """;
+
+    /**
+     * The progress recorded for migrations that completed while an earlier migration
+     * was still running, which can happen when migrations are applied in parallel.
+     * The meta table only tracks the last migration of the completed prefix,
+     * so these are remembered separately until the prefix catches up.
+     */
+    private final static String APPLIED_MARKER = "schemashift:applied";
+
+    private final Connection connection;
+    private final String progressTable;
+    private boolean tableCreated = false;
+    private boolean tableMissing = false;
+
+    ProgressStore(@NotNull Connection connection, @NotNull String migrationsTable) {
+        this.connection = Objects.requireNonNull(connection, "connection may not be null");
+        this.progressTable = tableName(Objects.requireNonNull(migrationsTable, "migrationsTable may not be null"));
+    }
+
+    @NotNull
+    static String tableName(@NotNull String migrationsTable) {
+        return migrationsTable + "_progress";
+    }
+
+    @Nullable
+    String get(@NotNull String migrationId) throws SQLException {
+        try (PreparedStatement statement = this.connection.prepareStatement(String.format(SELECT_PROGRESS_QUERY, this.progressTable))) {
+            statement.setString(1, migrationId);
+
+            ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next())
+                return null;
+
+            return resultSet.getString(1);
+        } catch (SQLException e) {
+            if (!SqlStatements.isNoSuchTable(e))
+                throw e;
+            this.tableMissing = true;
+            return null;
+        }
+    }
+
+    /**
+     * Creates the progress table if it doesn't exist yet. {@code CREATE TABLE} commits implicitly,
+     * so this must happen before a migration saves progress within a transaction.
+     *
+     * @throws SQLException if the table could not be created
+     */
+    void ensureTable() throws SQLException {
+        if (this.tableCreated)
+            return;
+
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute(String.format(CREATE_PROGRESS_TABLE, this.progressTable));
+        }
+        this.tableCreated = true;
+        this.tableMissing = false;
+    }
+
+    void set(@NotNull String migrationId, @NotNull String progress) throws SQLException {
+        this.ensureTable();
+
+        try (PreparedStatement statement = this.connection.prepareStatement(String.format(UPDATE_PROGRESS_QUERY, this.progressTable))) {
+            statement.setString(1, migrationId);
+            statement.setString(2, progress);
+            statement.setString(3, progress);
+            statement.execute();
+        }
+    }
+
+    void markApplied(@NotNull String migrationId) throws SQLException {
+        this.set(migrationId, APPLIED_MARKER);
+    }
+
+    @NotNull
+    Set<String> markedApplied() throws SQLException {
+        try (PreparedStatement statement = this.connection.prepareStatement(String.format(SELECT_APPLIED_QUERY, this.progressTable))) {
+            statement.setString(1, APPLIED_MARKER);
+
+            Set<String> applied = new HashSet<>();
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                applied.add(resultSet.getString(1));
+            }
+            return applied;
+        } catch (SQLException e) {
+            if (SqlStatements.isNoSuchTable(e))
+                return Set.of();
+            throw e;
+        }
+    }
+
+    void clear(@NotNull String migrationId) throws SQLException {
+        try (PreparedStatement statement = this.connection.prepareStatement(String.format(DELETE_PROGRESS_QUERY, this.progressTable))) {
+            statement.setString(1, migrationId);
+            statement.execute();
+        } catch (SQLException e) {
+            if (!SqlStatements.isNoSuchTable(e))
+                throw e;
+            this.tableMissing = true;
+        }
+    }
+
+    /**
+     * Returns whether any progress may be stored, which is the case unless
+     * this store found that the progress table doesn't exist.
+     *
+     * @return whether progress may be stored
+     */
+    boolean mayHaveProgress() {
+        return !this.tableMissing;
+    }
+
+}
@@ -0,0 +1,51 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps track of the progress of the current migration run, so it can be
+ * queried from other threads while migrations are applied.
+ */
+@ApiStatus.Internal
+final class ProgressTracker implements MigrationListener {
+
+    private final Set<String> running = new LinkedHashSet<>();
+    private int total;
+    private int completed;
+
+    @NotNull
+    synchronized MigrationProgress snapshot() {
+        return new MigrationProgress(this.total, this.completed, List.copyOf(this.running));
+    }
+
+    @Override
+    public synchronized void runStarted(@NotNull List<Migration> pending) {
+        this.total = pending.size();
+        this.completed = 0;
+        this.running.clear();
+    }
+
+    @Override
+    public synchronized void migrationStarted(@NotNull Migration migration) {
+        this.running.add(migration.id());
+    }
+
+    @Override
+    public synchronized void migrationCompleted(@NotNull Migration migration, @NotNull Duration duration) {
+        this.running.remove(migration.id());
+        this.completed++;
+    }
+
+    @Override
+    public synchronized void migrationFailed(@NotNull Migration migration, @NotNull Duration duration, @NotNull Exception failure) {
+        this.running.remove(migration.id());
+    }
+
+}
@@ -0,0 +1,27 @@
+package me.noahvdaa.schemashift;
+
+/**
+ * How likely a statement is to stall a production database, as estimated by {@link SchemaShift#plan()}.
+ */
+public enum Risk {
+
+    /**
+     * The statement is expected to complete quickly, for example because it only changes
+     * metadata or touches few rows.
+     */
+    LOW,
+
+    /**
+     * The statement may take a while or its impact could not be estimated, but it's not
+     * expected to block other queries for long.
+     */
+    MEDIUM,
+
+    /**
+     * The statement is expected to take long while blocking writes or holding many row locks,
+     * for example a table copy or an update of millions of rows. Consider running it in a
+     * maintenance window.
+     */
+    HIGH
+
+}
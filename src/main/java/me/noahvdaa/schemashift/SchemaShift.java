@@ -6,8 +6,11 @@ import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.Objects;
 
 /**
@@ -48,6 +51,74 @@ public interface SchemaShift {
      */
     void registerMigrations(@NotNull List<Migration> migrations);
 
+    /**
+     * Registers a schema snapshot that is equivalent to applying all migrations up to and
+     * including the migration with the specified id. A database without any applied migrations
+     * gets the snapshot applied in one go, followed by the migrations after that migration.
+     * Databases that already have migrations applied ignore the snapshot and continue as usual.
+     * The snapshot is applied with foreign key checks disabled, so its tables can be created in any order.
+     * <p>
+     * {@link BaselineGenerator} can be used to generate a snapshot from a migrated database.
+     *
+     * @param snapshot     the migration that creates the schema in one go
+     * @param equivalentId the id of the last migration the snapshot is equivalent to
+     * @throws IllegalStateException if a baseline is already registered
+     */
+    void registerBaseline(@NotNull Migration snapshot, @NotNull String equivalentId);
+
+    /**
+     * Enables or disables statement checkpoints. When enabled, migrations that execute SQL
+     * scripts save a checkpoint after every statement (or batch), so if a migration fails,
+     * the next attempt resumes at the statement that failed instead of running the whole
+     * script again. If the script was changed in the meantime, the next attempt fails rather
+     * than skipping statements that don't match the ones that were executed. Data manipulation
+     * statements and batches are committed in a single transaction with their checkpoint, so they
+     * are never executed twice, and a batch that failed halfway is executed again in full.
+     * <p>
+     * Saving a checkpoint takes an extra query per statement, so this is disabled by default.
+     *
+     * @param enabled whether to checkpoint statements
+     */
+    void checkpointStatements(boolean enabled);
+
+    /**
+     * Groups consecutive transactional migrations into a single transaction, instead of
+     * committing every migration and its bookkeeping on its own. A migration is transactional
+     * if it executes a SQL script that only contains data manipulation statements
+     * ({@code INSERT}, {@code UPDATE}, {@code DELETE} and {@code REPLACE}), since any other
+     * statement may implicitly commit the transaction. If a migration in a group fails, the
+     * whole group is rolled back, and none of its migrations are recorded as applied.
+     * <p>
+     * This speeds up catching up on databases that are far behind, at the cost of reading the
+     * script of every pending migration an extra time. It only applies to {@link #migrateLatest()}
+     * and {@link #migrateLatest(Duration)}, and statements aren't checkpointed within a group.
+     * Migrations that saved progress during an earlier attempt are applied on their own, so they resume.
+     * Migrations with a {@link me.noahvdaa.schemashift.migration.SessionProfile} other than
+     * {@link me.noahvdaa.schemashift.migration.SessionProfile#NONE NONE} are applied on their own too, since
+     * some session variables, such as {@code sql_log_bin}, can't be changed within a transaction.
+     *
+     * @param maxGroupSize the maximum amount of migrations per transaction, or 1 to disable grouping (the default)
+     */
+    void groupTransactions(int maxGroupSize);
+
+    /**
+     * Sets how long the lock used by {@link #migrateLatest(Duration)} may go without a heartbeat
+     * before other nodes consider it stale and take it over. This only applies to databases without
+     * {@code GET_LOCK}, where the lock is a row in a companion lock table that isn't released when
+     * a node dies. The node holding the lock refreshes it after every migration, so this should be
+     * longer than the slowest migration. Defaults to 1 hour.
+     *
+     * @param staleAfter the duration after which the lock is considered stale
+     */
+    void lockStaleAfter(@NotNull Duration staleAfter);
+
+    /**
+     * Registers a listener that receives events about migrations being applied.
+     *
+     * @param listener the listener to register
+     */
+    void addListener(@NotNull MigrationListener listener);
+
     /**
      * Returns an immutable copy of all registered migrations.
      *
@@ -57,9 +128,9 @@ public interface SchemaShift {
     List<Migration> migrations();
 
     /**
-     * Returns an immutable copy of all registered migrations that are
+     * Returns an immutable view of all registered migrations that are
      * registered after the specified migration, or null if no migration
-     * exists with the specified id.
+     * exists with the specified id. The lookup takes constant time.
      *
      * @param migration the migration to get all migrations after
      * @return all registered migrations after the specified migration, or null if the migration isn't registered
@@ -71,9 +142,9 @@ public interface SchemaShift {
     }
 
     /**
-     * Returns an immutable copy of all registered migrations that are
+     * Returns an immutable view of all registered migrations that are
      * registered after the specified migration, or null if no migration
-     * exists with the specified id.
+     * exists with the specified id. The lookup takes constant time.
      *
      * @param migration the migration id to get all migrations after
      * @return all registered migrations after the specified migration, or null if the migration isn't registered
@@ -81,6 +152,43 @@ public interface SchemaShift {
     @Nullable
     List<Migration> migrationsAfter(@NotNull String migration);
 
+    /**
+     * Returns all registered migrations that haven't been applied to the current connection yet.
+     * This takes a single query on the meta table, so it's cheap enough to call on every startup.
+     * If the last applied migration isn't registered, no migrations are considered pending.
+     *
+     * @return all pending migrations, in registration order
+     * @throws SQLException if an error occurs while reading the applied migrations
+     */
+    @NotNull
+    List<Migration> pendingMigrations() throws SQLException;
+
+    /**
+     * Returns whether all registered migrations have been applied to the current connection.
+     * This takes a single query on the meta table, so it's cheap enough to call on every startup.
+     *
+     * @return whether all registered migrations have been applied
+     * @throws SQLException if an error occurs while reading the applied migrations
+     */
+    default boolean isUpToDate() throws SQLException {
+        return this.pendingMigrations().isEmpty();
+    }
+
+    /**
+     * Estimates the impact of all pending migrations without applying them, so dangerous
+     * migrations can be scheduled into a maintenance window. Every statement of a pending
+     * migration is classified by what it likely does to the affected table, using table
+     * sizes from {@code information_schema} and {@code EXPLAIN} for data manipulation statements.
+     * <p>
+     * Migrations that don't execute a SQL script, such as backfills, can't be inspected
+     * and are reported as {@link Risk#MEDIUM}.
+     *
+     * @return the estimated impact of all pending migrations
+     * @throws SQLException if an error occurs while reading the applied migrations or table statistics
+     */
+    @NotNull
+    MigrationPlan plan() throws SQLException;
+
     /**
      * Applies all un-applied migrations to the current connection.
      * The return value indicates whether at least one migration was applied.
@@ -90,6 +198,86 @@ public interface SchemaShift {
      */
     boolean migrateLatest() throws SQLException;
 
+    /**
+     * Applies all un-applied migrations to the current connection, coordinating with
+     * other nodes that migrate the same database at the same time.
+     * <p>
+     * Only one node acquires a lock ({@code GET_LOCK} on MySQL/MariaDB, or a row in a
+     * companion lock table otherwise) and applies the migrations. The other nodes wait
+     * with exponential backoff, and return as soon as they see all migrations were applied.
+     * The return value indicates whether at least one migration was applied by this node.
+     *
+     * @param lockTimeout the maximum time to wait for another node to finish migrating
+     * @return whether at least one migration was applied by this node
+     * @throws SQLException if an error occurs while applying the migrations
+     * @throws java.sql.SQLTimeoutException if the database wasn't migrated within the lock timeout
+     */
+    boolean migrateLatest(@NotNull Duration lockTimeout) throws SQLException;
+
+    /**
+     * Applies all un-applied migrations, running migrations that don't depend on each
+     * other in parallel. Every migration is applied on its own connection obtained from the
+     * specified supplier, while the applied migrations are tracked on the current connection.
+     * See {@link Migration#dependencies()} for how the order of migrations is determined.
+     * <p>
+     * If a migration fails, no new migrations are started, but migrations that are already
+     * running are allowed to complete and are tracked as applied.
+     * The return value indicates whether at least one migration was applied.
+     *
+     * @param connectionSupplier the supplier to obtain connections for applying migrations from
+     * @param parallelism        the maximum amount of migrations to apply at the same time
+     * @return whether at least one migration was applied
+     * @throws SQLException if an error occurs while applying the migrations
+     */
+    boolean migrateLatest(@NotNull ConnectionSupplier connectionSupplier, int parallelism) throws SQLException;
+
+    /**
+     * Applies all un-applied migrations to the current connection on the specified executor,
+     * so the rest of the application can start up in the meantime.
+     * The returned future completes with whether at least one migration was applied,
+     * or exceptionally if the migrations failed.
+     * <p>
+     * The connection must not be used by anything else until the future has completed.
+     *
+     * @param executor the executor to apply the migrations on
+     * @return a future that completes once all migrations were applied
+     * @see #ready()
+     */
+    @NotNull
+    CompletableFuture<Boolean> migrateLatestAsync(@NotNull Executor executor);
+
+    /**
+     * Applies all un-applied migrations to the current connection on a new thread, so
+     * the rest of the application can start up in the meantime. A virtual thread is
+     * used when the running JVM supports them.
+     *
+     * @return a future that completes once all migrations were applied
+     * @see #migrateLatestAsync(Executor)
+     */
+    @NotNull
+    CompletableFuture<Boolean> migrateLatestAsync();
+
+    /**
+     * Returns a future that completes once the database is up to date, so components
+     * that need the migrated schema can wait for it. The future completes after any of the
+     * {@code migrateLatest} methods succeeded, or completes exceptionally if one failed first.
+     * <p>
+     * Completing or cancelling the returned future does not affect migrations.
+     *
+     * @return a future that completes once the database is up to date
+     */
+    @NotNull
+    CompletableFuture<Void> ready();
+
+    /**
+     * Returns the progress of the current or most recent migration run.
+     * This may be called from any thread while migrations are being applied.
+     *
+     * @return the progress of the current or most recent migration run
+     */
+    @NotNull
+    MigrationProgress progress();
+
     /**
      * Creates a new SchemaShift instance with the specified connection.
      *
@@ -0,0 +1,149 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A set of database migrations that is applied to many targets, such as one
+ * schema per tenant, concurrently.
+ * <p>
+ * Every target is migrated on its own connection obtained from a {@link ConnectionSupplier},
+ * exactly like a {@link SchemaShift} instance would migrate it. A failure on one target
+ * doesn't abort the others; all outcomes are collected in a {@link FleetResult}.
+ */
+public interface SchemaShiftFleet {
+
+    /**
+     * The amount of targets that are migrated at the same time if no concurrency is specified.
+     */
+    int DEFAULT_CONCURRENCY = 8;
+
+    /**
+     * Registers the specified migration.
+     * Keep in mind that registration order is important, if a new migration
+     * is registered before an old migration that was already executed,
+     * it will not be executed!
+     *
+     * @param migration the migration to register
+     */
+    void registerMigration(@NotNull Migration migration);
+
+    /**
+     * Registers the specified migrations, in the order they were provided.
+     * Keep in mind that registration order is important, if a new migration
+     * is registered before an old migration that was already executed,
+     * it will not be executed!
+     *
+     * @param migrations the migrations to register
+     */
+    default void registerMigrations(@NotNull Migration... migrations) {
+        this.registerMigrations(Arrays.asList(migrations));
+    }
+
+    /**
+     * Registers the specified migrations, in the order they were provided.
+     * Keep in mind that registration order is important, if a new migration
+     * is registered before an old migration that was already executed,
+     * it will not be executed!
+     *
+     * @param migrations the migrations to register
+     */
+    void registerMigrations(@NotNull List<Migration> migrations);
+
+    /**
+     * Registers a schema snapshot that is equivalent to applying all migrations up to and
+     * including the migration with the specified id. A database without any applied migrations
+     * gets the snapshot applied in one go, followed by the migrations after that migration.
+     * Databases that already have migrations applied ignore the snapshot and continue as usual.
+     * <p>
+     * {@link BaselineGenerator} can be used to generate a snapshot from a migrated database.
+     *
+     * @param snapshot     the migration that creates the schema in one go
+     * @param equivalentId the id of the last migration the snapshot is equivalent to
+     * @throws IllegalStateException if a baseline is already registered
+     */
+    void registerBaseline(@NotNull Migration snapshot, @NotNull String equivalentId);
+
+    /**
+     * Returns an immutable copy of all registered migrations.
+     *
+     * @return all registered migrations
+     */
+    @NotNull
+    List<Migration> migrations();
+
+    /**
+     * Returns all targets this fleet migrates.
+     *
+     * @return all targets
+     */
+    @NotNull
+    List<MigrationTarget> targets();
+
+    /**
+     * Applies all un-applied migrations to every target.
+     * Errors that occur while migrating a target are reported in the returned
+     * result instead of being thrown.
+     *
+     * @return the outcome for every target
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the targets
+     */
+    @NotNull
+    FleetResult migrateLatest() throws InterruptedException;
+
+    /**
+     * Creates a new fleet that migrates the specified targets, using
+     * {@link #DEFAULT_CONCURRENCY} concurrent connections.
+     *
+     * @param connectionSupplier the supplier to obtain connections from
+     * @param targets            the targets to migrate
+     * @return the new fleet
+     */
+    static SchemaShiftFleet with(@NotNull ConnectionSupplier connectionSupplier, @NotNull List<MigrationTarget> targets) {
+        return with(connectionSupplier, targets, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Creates a new fleet that migrates the specified targets, using at most
+     * the specified amount of concurrent connections.
+     * Virtual threads are used if the running JVM supports them.
+     *
+     * @param connectionSupplier the supplier to obtain connections from
+     * @param targets            the targets to migrate
+     * @param concurrency        the maximum amount of targets to migrate at the same time
+     * @return the new fleet
+     */
+    static SchemaShiftFleet with(@NotNull ConnectionSupplier connectionSupplier, @NotNull List<MigrationTarget> targets, int concurrency) {
+        return new SchemaShiftFleetImpl(
+            connectionSupplier,
+            targets,
+            concurrency,
+            null
+        );
+    }
+
+    /**
+     * Creates a new fleet that migrates the specified targets on the specified executor,
+     * using at most the specified amount of concurrent connections.
+     * The executor is not shut down by the fleet.
+     *
+     * @param connectionSupplier the supplier to obtain connections from
+     * @param targets            the targets to migrate
+     * @param concurrency        the maximum amount of targets to migrate at the same time
+     * @param executor           the executor to migrate the targets on
+     * @return the new fleet
+     */
+    static SchemaShiftFleet with(@NotNull ConnectionSupplier connectionSupplier, @NotNull List<MigrationTarget> targets, int concurrency, @NotNull ExecutorService executor) {
+        return new SchemaShiftFleetImpl(
+            connectionSupplier,
+            targets,
+            concurrency,
+            executor
+        );
+    }
+
+}
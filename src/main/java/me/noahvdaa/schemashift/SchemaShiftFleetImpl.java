@@ -0,0 +1,133 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.Migration;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ApiStatus.Internal
+final class SchemaShiftFleetImpl implements SchemaShiftFleet {
+
+    private final ConnectionSupplier connectionSupplier;
+    private final List<MigrationTarget> targets;
+    private final int concurrency;
+    private final ExecutorService executor;
+    private final MigrationRegistry migrations;
+
+    SchemaShiftFleetImpl(@NotNull ConnectionSupplier connectionSupplier, @NotNull List<MigrationTarget> targets, int concurrency, @Nullable ExecutorService executor) {
+        this.connectionSupplier = Objects.requireNonNull(connectionSupplier, "connectionSupplier may not be null");
+        this.targets = List.copyOf(Objects.requireNonNull(targets, "targets may not be null"));
+        if (concurrency < 1)
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        this.concurrency = concurrency;
+        this.executor = executor;
+        this.migrations = new MigrationRegistry();
+    }
+
+    @Override
+    public void registerMigration(@NotNull Migration migration) {
+        this.migrations.register(migration);
+    }
+
+    @Override
+    public void registerMigrations(@NotNull List<Migration> migrations) {
+        this.migrations.registerAll(migrations);
+    }
+
+    @Override
+    public void registerBaseline(@NotNull Migration snapshot, @NotNull String equivalentId) {
+        this.migrations.registerBaseline(snapshot, equivalentId);
+    }
+
+    @NotNull
+    @Override
+    public List<Migration> migrations() {
+        return this.migrations.copy();
+    }
+
+    @NotNull
+    @Override
+    public List<MigrationTarget> targets() {
+        return this.targets;
+    }
+
+    @NotNull
+    @Override
+    public FleetResult migrateLatest() throws InterruptedException {
+        // All targets share one read-only snapshot, so nothing is re-registered per target.
+        MigrationRegistry migrations = this.migrations.snapshot();
+        FleetResult.TargetResult[] results = new FleetResult.TargetResult[this.targets.size()];
+        AtomicInteger nextTarget = new AtomicInteger();
+
+        // Rather than submitting a task per target, a fixed amount of workers pull targets
+        // from a shared counter. This bounds the amount of open connections, even when the
+        // provided executor is unbounded.
+        Runnable worker = () -> {
+            int index;
+            while ((index = nextTarget.getAndIncrement()) < results.length) {
+                results[index] = this.migrate(this.targets.get(index), migrations);
+            }
+        };
+
+        int workers = Math.min(this.concurrency, this.targets.size());
+        ExecutorService executor = this.executor != null ? this.executor : Executors.newFixedThreadPool(Math.max(workers, 1), Threads.factory("SchemaShift-fleet"));
+        List<Future<?>> futures = new ArrayList<>(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(worker));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            // Workers catch everything but errors, so just rethrow those.
+            if (e.getCause() instanceof Error error)
+                throw error;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (this.executor == null)
+                executor.shutdownNow();
+        }
+
+        return new FleetResult(Arrays.asList(results));
+    }
+
+    @NotNull
+    private FleetResult.TargetResult migrate(@NotNull MigrationTarget target, @NotNull MigrationRegistry migrations) {
+        try (Connection connection = this.connectionSupplier.get()) {
+            String originalCatalog = connection.getCatalog();
+            if (target.schema() != null)
+                connection.setCatalog(target.schema());
+
+            try {
+                SchemaShiftImpl schemaShift = new SchemaShiftImpl(connection, target.migrationsTable(), migrations);
+                return new FleetResult.TargetResult(target, schemaShift.migrateLatest(), null);
+            } finally {
+                // Don't leak the target schema into pooled connections.
+                if (target.schema() != null && originalCatalog != null)
+                    connection.setCatalog(originalCatalog);
+            }
+        } catch (SQLException | RuntimeException e) {
+            return new FleetResult.TargetResult(target, false, e);
+        }
+    }
+
+}
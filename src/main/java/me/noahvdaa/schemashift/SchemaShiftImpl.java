@@ -1,19 +1,31 @@
 package me.noahvdaa.schemashift;
 
 import me.noahvdaa.schemashift.migration.Migration;
+import me.noahvdaa.schemashift.migration.MigrationSource;
+import me.noahvdaa.schemashift.migration.SessionProfile;
+import me.noahvdaa.schemashift.migration.SqlScriptReader;
+import me.noahvdaa.schemashift.migration.SqlStatements;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 
 @ApiStatus.Internal
 final class SchemaShiftImpl implements SchemaShift {
@@ -21,12 +33,15 @@ final class SchemaShiftImpl implements SchemaShift {
     static final String DEFAULT_MIGRATIONS_TABLE = "schemashift_meta";
     private final Connection connection;
     private final String migrationsTable;
-    private final List<Migration> migrations;
-    private String lastMigration = null;
+    private final MigrationRegistry migrations;
+    private final ProgressStore progressStore;
+    private final MigrationLock lock;
+    private final Instrumentation instrumentation;
+    private final ProgressTracker progress = new ProgressTracker();
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private volatile boolean checkpointStatements = false;
+    private volatile int maxTransactionGroupSize = 1;
 
-    private final static String TABLE_CHECK_QUERY = """
-        SELECT COUNT(*) FROM `information_schema`.`tables` WHERE `table_schema` = DATABASE() AND `table_name` = ?;
-        """;
     private final static String LATEST_MIGRATION_QUERY = """
         SELECT `last_migration_id` FROM `%s`;
         """;
@@ -39,105 +54,469 @@ final class SchemaShiftImpl implements SchemaShift {
     private final static String UPDATE_LAST_MIGRATION_QUERY = """
         INSERT INTO `%s` (`last_migration_id`) VALUES (?) ON DUPLICATE KEY UPDATE `last_migration_id` = ?;
         """;
+    private final static long INITIAL_LOCK_BACKOFF_MILLIS = 50;
+    private final static long MAX_LOCK_BACKOFF_MILLIS = 5_000;
 
 
     SchemaShiftImpl(@NotNull Connection connection, @NotNull String migrationsTable) {
+        this(connection, migrationsTable, new MigrationRegistry());
+    }
+
+    SchemaShiftImpl(@NotNull Connection connection, @NotNull String migrationsTable, @NotNull MigrationRegistry migrations) {
         this.connection = Objects.requireNonNull(connection, "connection may not be null");
         this.migrationsTable = Objects.requireNonNull(migrationsTable, "migrationsTable may not be null");
-        this.migrations = new ArrayList<>();
+        this.migrations = Objects.requireNonNull(migrations, "migrations may not be null");
+        this.progressStore = new ProgressStore(connection, migrationsTable);
+        this.lock = new MigrationLock(connection, migrationsTable);
+        this.instrumentation = new Instrumentation(migrationsTable);
+        this.instrumentation.addListener(this.progress);
     }
 
     @Override
     public void registerMigration(@NotNull Migration migration) {
-        Objects.requireNonNull(migration, "migration may not be null");
-        Optional<Migration> existingMigration = this.migrations.stream().filter((mig) -> mig.id().equals(migration.id())).findAny();
-        if (existingMigration.isPresent())
-            throw new IllegalArgumentException("A migration with the id '" + migration.id() + "' is already registered");
-
-        this.migrations.add(migration);
-        this.lastMigration = migration.id();
+        this.migrations.register(migration);
     }
 
     @Override
     public void registerMigrations(@NotNull List<Migration> migrations) {
-        Objects.requireNonNull(migrations, "migrations may not be null");
-        for (Migration migration : migrations) {
-            this.registerMigration(migration);
-        }
+        this.migrations.registerAll(migrations);
+    }
+
+    @Override
+    public void registerBaseline(@NotNull Migration snapshot, @NotNull String equivalentId) {
+        this.migrations.registerBaseline(snapshot, equivalentId);
     }
 
     @NotNull
     @Override
     public List<Migration> migrations() {
-        return List.copyOf(this.migrations);
+        return this.migrations.copy();
     }
 
     @Nullable
     @Override
     public List<Migration> migrationsAfter(@NotNull String migration) {
         Objects.requireNonNull(migration, "migration may not be null");
-        Optional<Migration> existingMigration = this.migrations.stream().filter((mig) -> mig.id().equals(migration)).findFirst();
-        if (existingMigration.isEmpty())
-            return null;
+        return this.migrations.after(migration);
+    }
+
+    @Override
+    public void addListener(@NotNull MigrationListener listener) {
+        this.instrumentation.addListener(listener);
+    }
 
-        int index = this.migrations.indexOf(existingMigration.get());
-        return this.migrations.subList(index + 1, this.migrations.size());
+    @Override
+    public void checkpointStatements(boolean enabled) {
+        this.checkpointStatements = enabled;
+    }
+
+    @Override
+    public void lockStaleAfter(@NotNull Duration staleAfter) {
+        this.lock.staleAfter(staleAfter);
+    }
+
+    @Override
+    public void groupTransactions(int maxGroupSize) {
+        if (maxGroupSize < 1)
+            throw new IllegalArgumentException("maxGroupSize must be at least 1");
+        this.maxTransactionGroupSize = maxGroupSize;
+    }
+
+    @NotNull
+    @Override
+    public List<Migration> pendingMigrations() throws SQLException {
+        return this.pendingMigrations(this.getLatestMigrationId());
+    }
+
+    @NotNull
+    @Override
+    public MigrationPlan plan() throws SQLException {
+        return new MigrationPlanner(this.connection).plan(this.pendingMigrations());
     }
 
     @Override
     public boolean migrateLatest() throws SQLException {
+        return this.trackReadiness(this::migrateSequentially);
+    }
+
+    private boolean migrateSequentially() throws SQLException {
         String latestCompleted = this.getLatestMigrationId();
+        List<Migration> toRun = this.pendingMigrations(latestCompleted);
+        if (toRun.isEmpty())
+            return false;
 
-        // already up to date
-        if (Objects.equals(latestCompleted, this.lastMigration))
+        Instrumentation.Run run = this.instrumentation.runStarted(toRun);
+        int applied = 0;
+        try {
+            this.prepareMetaTable(latestCompleted);
+            Set<String> appliedOutOfOrder = this.progressStore.markedApplied();
+
+            try (PreparedStatement updateLastMigrationStatement = this.prepareUpdateLastMigration()) {
+                int maxGroupSize = this.maxTransactionGroupSize;
+                // Classify every migration once, since reading its script may be expensive.
+                boolean[] groupable = new boolean[toRun.size()];
+                if (maxGroupSize > 1) {
+                    for (int i = 0; i < toRun.size(); i++) {
+                        groupable[i] = !appliedOutOfOrder.contains(toRun.get(i).id()) && this.isGroupable(toRun.get(i));
+                    }
+                }
+
+                int index = 0;
+                while (index < toRun.size()) {
+                    Migration migration = toRun.get(index);
+                    // Already applied during an earlier parallel run that didn't complete.
+                    if (appliedOutOfOrder.contains(migration.id())) {
+                        this.updateLastMigration(updateLastMigrationStatement, migration);
+                        this.progressStore.clear(migration.id());
+                        index++;
+                        continue;
+                    }
+
+                    if (maxGroupSize > 1) {
+                        int end = index;
+                        while (end < toRun.size() && end - index < maxGroupSize && groupable[end]) {
+                            end++;
+                        }
+
+                        if (end - index > 1) {
+                            this.applyGroup(toRun.subList(index, end), updateLastMigrationStatement);
+                            applied += end - index;
+                            index = end;
+                            this.lock.heartbeat();
+                            continue;
+                        }
+                    }
+
+                    MigrationContextImpl context = this.createContext(this.progressStore, migration);
+                    this.applyMigration(migration, this.connection, context);
+                    applied++;
+
+                    this.updateLastMigration(updateLastMigrationStatement, migration);
+                    context.complete();
+                    index++;
+                    this.lock.heartbeat();
+                }
+            }
+        } finally {
+            this.instrumentation.runCompleted(run, applied);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean migrateLatest(@NotNull Duration lockTimeout) throws SQLException {
+        Objects.requireNonNull(lockTimeout, "lockTimeout may not be null");
+        return this.trackReadiness(() -> this.migrateWithLock(lockTimeout));
+    }
+
+    private boolean migrateWithLock(@NotNull Duration lockTimeout) throws SQLException {
+        long deadline = System.nanoTime() + lockTimeout.toNanos();
+        long backoffMillis = INITIAL_LOCK_BACKOFF_MILLIS;
+        while (true) {
+            // Whoever holds the lock may have applied everything by now.
+            if (this.isUpToDate())
+                return false;
+
+            if (this.lock.tryAcquire()) {
+                try {
+                    return this.migrateSequentially();
+                } finally {
+                    this.lock.release();
+                }
+            }
+
+            long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+            if (remainingMillis <= 0)
+                throw new SQLTimeoutException("Timed out waiting for another node to finish migrating " + this.migrationsTable);
+
+            // Add jitter, so waiting nodes don't all poll at the same time.
+            long sleepMillis = Math.min(remainingMillis, backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1));
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the migration lock", e);
+            }
+            backoffMillis = Math.min(backoffMillis * 2, MAX_LOCK_BACKOFF_MILLIS);
+        }
+    }
+
+    @Override
+    public boolean migrateLatest(@NotNull ConnectionSupplier connectionSupplier, int parallelism) throws SQLException {
+        Objects.requireNonNull(connectionSupplier, "connectionSupplier may not be null");
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+
+        return this.trackReadiness(() -> this.migrateParallel(connectionSupplier, parallelism));
+    }
+
+    private boolean migrateParallel(@NotNull ConnectionSupplier connectionSupplier, int parallelism) throws SQLException {
+        String latestCompleted = this.getLatestMigrationId();
+        List<Migration> toRun = this.pendingMigrations(latestCompleted);
+        if (toRun.isEmpty())
             return false;
 
-        List<Migration> toRun = latestCompleted == null ? this.migrations : this.migrationsAfter(latestCompleted);
-        if (toRun == null)
+        Instrumentation.Run run = this.instrumentation.runStarted(toRun);
+        ParallelMigrator migrator = new ParallelMigrator(this, this.migrationsTable, connectionSupplier, parallelism);
+        try {
+            this.prepareMetaTable(latestCompleted);
+            migrator.migrate(toRun, this.progressStore.markedApplied());
+        } finally {
+            this.instrumentation.runCompleted(run, migrator.appliedCount());
+        }
+        return true;
+    }
+
+    /**
+     * Applies consecutive transactional migrations and their bookkeeping in a single transaction.
+     * If any of them fails, the whole group is rolled back. Listeners are only told a migration
+     * completed once the group is committed, and every member that was started is reported as
+     * failed if the group is rolled back.
+     *
+     * @param group                        the migrations to apply
+     * @param updateLastMigrationStatement the prepared bookkeeping statement
+     * @throws SQLException if a migration failed to apply
+     */
+    private void applyGroup(@NotNull List<Migration> group, @NotNull PreparedStatement updateLastMigrationStatement) throws SQLException {
+        List<GroupMember> applied = new ArrayList<>(group.size());
+        Instrumentation.Timing current = null;
+        boolean autoCommit = this.connection.getAutoCommit();
+        this.connection.setAutoCommit(false);
+        try {
+            for (Migration migration : group) {
+                // The group is atomic, so checkpoints within it would never be used.
+                MigrationContextImpl context = new MigrationContextImpl(this.progressStore, migration, this.instrumentation, false);
+                current = this.instrumentation.migrationStarted(migration);
+                // Grouped migrations never have a session profile, so there are no settings to apply.
+                migration.apply(this.connection, context);
+                Duration duration = this.instrumentation.stop(current);
+
+                Instrumentation.Timing bookkeeping = this.instrumentation.bookkeepingStarted(migration);
+                this.writeLastMigration(updateLastMigrationStatement, migration);
+                applied.add(new GroupMember(context, current, duration, bookkeeping, this.instrumentation.stop(bookkeeping)));
+                current = null;
+            }
+            this.connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                this.connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+
+            for (GroupMember member : applied) {
+                this.instrumentation.migrationFailed(member.timing(), member.duration(), e);
+            }
+            if (current != null)
+                this.instrumentation.migrationFailed(current, e);
+            throw e;
+        } finally {
+            this.connection.setAutoCommit(autoCommit);
+        }
+
+        for (GroupMember member : applied) {
+            this.instrumentation.migrationCompleted(member.timing(), member.duration());
+            this.instrumentation.bookkeepingCompleted(member.bookkeeping(), member.bookkeepingDuration());
+            member.context().complete();
+        }
+    }
+
+    /**
+     * A migration of a transaction group that was applied, but isn't reported as completed until the group commits.
+     */
+    private record GroupMember(
+        @NotNull MigrationContextImpl context,
+        @NotNull Instrumentation.Timing timing,
+        @NotNull Duration duration,
+        @NotNull Instrumentation.Timing bookkeeping,
+        @NotNull Duration bookkeepingDuration
+    ) {
+    }
+
+    /**
+     * Returns whether the specified migration can be applied as part of a transaction group.
+     * Migrations with saved progress are left out, since a group neither resumes from nor
+     * clears that progress. So are migrations with a session profile, since some session
+     * variables can't be changed within a transaction, and they would leak into the rest of the group.
+     *
+     * @param migration the migration to check
+     * @return whether the migration can be grouped
+     * @throws SQLException if the migration's progress or script could not be read
+     */
+    private boolean isGroupable(@NotNull Migration migration) throws SQLException {
+        return SessionProfile.NONE.equals(migration.sessionProfile())
+            && this.progressStore.get(migration.id()) == null
+            && isTransactional(migration);
+    }
+
+    /**
+     * Returns whether the specified migration only executes data manipulation statements,
+     * which, unlike DDL, don't implicitly commit the current transaction.
+     *
+     * @param migration the migration to check
+     * @return whether the migration can be applied as part of a larger transaction
+     * @throws SQLException if the migration's script could not be read
+     */
+    private static boolean isTransactional(@NotNull Migration migration) throws SQLException {
+        MigrationSource source = migration.source();
+        if (source == null)
             return false;
 
-        // Make sure the schemashift meta table exists now.
+        try (SqlScriptReader script = new SqlScriptReader(source.openReader())) {
+            String sql;
+            while ((sql = script.next()) != null) {
+                if (!SqlStatements.isDml(sql))
+                    return false;
+            }
+            return true;
+        } catch (IOException e) {
+            throw new SQLException("Failed to read migration " + migration.id() + " from " + source, e);
+        }
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Boolean> migrateLatestAsync(@NotNull Executor executor) {
+        Objects.requireNonNull(executor, "executor may not be null");
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return this.migrateLatest();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Boolean> migrateLatestAsync() {
+        ThreadFactory threadFactory = Threads.factory("SchemaShift-migrate-async");
+        return this.migrateLatestAsync((runnable) -> threadFactory.newThread(runnable).start());
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Void> ready() {
+        return this.ready.copy();
+    }
+
+    @NotNull
+    @Override
+    public MigrationProgress progress() {
+        return this.progress.snapshot();
+    }
+
+    private boolean trackReadiness(@NotNull MigrationRun run) throws SQLException {
+        try {
+            boolean applied = run.migrate();
+            this.ready.complete(null);
+            return applied;
+        } catch (SQLException | RuntimeException e) {
+            this.ready.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Makes sure the schemashift meta table exists. If we know a completed
+     * migration, the table obviously exists already.
+     *
+     * @param latestCompleted the id of the last applied migration, or null
+     * @throws SQLException if the table could not be created
+     */
+    private void prepareMetaTable(@Nullable String latestCompleted) throws SQLException {
+        if (latestCompleted != null)
+            return;
+
         try (Statement statement = this.connection.createStatement()) {
             statement.execute(String.format(CREATE_SCHEMASHIFT_META_TABLE, this.migrationsTable));
         }
+    }
+
+    @NotNull
+    PreparedStatement prepareUpdateLastMigration() throws SQLException {
+        return this.connection.prepareStatement(String.format(UPDATE_LAST_MIGRATION_QUERY, this.migrationsTable));
+    }
 
-        try (PreparedStatement updateLastMigrationStatement = this.connection.prepareStatement(String.format(UPDATE_LAST_MIGRATION_QUERY, this.migrationsTable))) {
-            for (Migration migration : toRun) {
-                migration.apply(this.connection);
+    void updateLastMigration(@NotNull PreparedStatement statement, @NotNull Migration migration) throws SQLException {
+        Instrumentation.Timing timing = this.instrumentation.bookkeepingStarted(migration);
+        this.writeLastMigration(statement, migration);
+        this.instrumentation.bookkeepingCompleted(timing);
+    }
 
-                updateLastMigrationStatement.setString(1, migration.id());
-                updateLastMigrationStatement.setString(2, migration.id());
-                updateLastMigrationStatement.execute();
-            }
+    private void writeLastMigration(@NotNull PreparedStatement statement, @NotNull Migration migration) throws SQLException {
+        statement.setString(1, migration.id());
+        statement.setString(2, migration.id());
+        statement.execute();
+    }
+
+    @NotNull
+    MigrationContextImpl createContext(@NotNull ProgressStore progressStore, @NotNull Migration migration) {
+        return new MigrationContextImpl(progressStore, migration, this.instrumentation, this.checkpointStatements);
+    }
+
+    void applyMigration(@NotNull Migration migration, @NotNull Connection connection, @NotNull MigrationContextImpl context) throws SQLException {
+        context.prepare();
+        Instrumentation.Timing timing = this.instrumentation.migrationStarted(migration);
+        try (SessionSettings ignored = SessionSettings.apply(connection, migration.sessionProfile())) {
+            migration.apply(connection, context);
+        } catch (SQLException | RuntimeException e) {
+            this.instrumentation.migrationFailed(timing, e);
+            throw e;
         }
+        this.instrumentation.migrationCompleted(timing);
+    }
 
-        return true;
+    @NotNull
+    ProgressStore progressStore() {
+        return this.progressStore;
+    }
+
+    @NotNull
+    MigrationRegistry registry() {
+        return this.migrations;
+    }
+
+    @NotNull
+    private List<Migration> pendingMigrations(@Nullable String latestCompleted) {
+        // already up to date
+        if (Objects.equals(latestCompleted, this.migrations.lastId()))
+            return List.of();
+
+        List<Migration> pending = latestCompleted == null ? this.migrations.fromScratch() : this.migrations.after(latestCompleted);
+        return pending == null ? List.of() : pending;
     }
 
+    /**
+     * Looks up the id of the last applied migration in a single round-trip.
+     * Rather than checking {@code information_schema} first, which is slow on servers
+     * with many tables, the meta table is queried directly and a missing table is
+     * treated as no migrations having been applied yet.
+     *
+     * @return the id of the last applied migration, or null if none were applied
+     * @throws SQLException if the meta table could not be queried
+     */
     @Nullable
     private String getLatestMigrationId() throws SQLException {
-        if (!this.hasMigrationsTable())
-            return null;
-
         try (Statement statement = this.connection.createStatement()) {
             ResultSet resultSet = statement.executeQuery(String.format(LATEST_MIGRATION_QUERY, this.migrationsTable));
             if (!resultSet.next())
                 return null;
 
             return resultSet.getString(1);
+        } catch (SQLException e) {
+            if (SqlStatements.isNoSuchTable(e))
+                return null;
+            throw e;
         }
     }
 
-    private boolean hasMigrationsTable() throws SQLException {
-        try (PreparedStatement statement = this.connection.prepareStatement(TABLE_CHECK_QUERY)) {
-            statement.setString(1, this.migrationsTable);
+    @FunctionalInterface
+    private interface MigrationRun {
 
-            ResultSet resultSet = statement.executeQuery();
-            if (!resultSet.next())
-                return false;
+        boolean migrate() throws SQLException;
 
-            return resultSet.getInt(1) != 0;
-        }
     }
 
 }
@@ -0,0 +1,109 @@
+package me.noahvdaa.schemashift;
+
+import me.noahvdaa.schemashift.migration.SessionProfile;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Session variables set on a connection for the duration of a migration.
+ * Closing restores the values the variables had before.
+ */
+@ApiStatus.Internal
+final class SessionSettings implements AutoCloseable {
+
+    private final Connection connection;
+    private final Map<String, Object> previous;
+
+    private SessionSettings(@NotNull Connection connection, @NotNull Map<String, Object> previous) {
+        this.connection = connection;
+        this.previous = previous;
+    }
+
+    /**
+     * Sets the variables of the specified profile on the connection, remembering their current values.
+     *
+     * @param connection the connection to set the variables on
+     * @param profile    the profile to apply
+     * @return the applied settings, which restore the previous values when closed
+     * @throws SQLException if the variables could not be read or set
+     */
+    @NotNull
+    static SessionSettings apply(@NotNull Connection connection, @NotNull SessionProfile profile) throws SQLException {
+        Objects.requireNonNull(connection, "connection may not be null");
+        Objects.requireNonNull(profile, "profile may not be null");
+        if (profile.isEmpty())
+            return new SessionSettings(connection, Map.of());
+
+        Map<String, Object> previous = read(connection, profile);
+        try {
+            set(connection, profile.variables());
+        } catch (SQLException e) {
+            // Some of the variables may have been set already.
+            try {
+                set(connection, previous);
+            } catch (SQLException restoreFailure) {
+                e.addSuppressed(restoreFailure);
+            }
+            throw e;
+        }
+        return new SessionSettings(connection, previous);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (!this.previous.isEmpty())
+            set(this.connection, this.previous);
+    }
+
+    @NotNull
+    private static Map<String, Object> read(@NotNull Connection connection, @NotNull SessionProfile profile) throws SQLException {
+        StringJoiner query = new StringJoiner(", ", "SELECT ", ";");
+        for (String variable : profile.variables().keySet()) {
+            query.add("@@SESSION." + variable);
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(query.toString());
+            resultSet.next();
+            int column = 1;
+            for (String variable : profile.variables().keySet()) {
+                values.put(variable, resultSet.getObject(column++));
+            }
+        }
+        return values;
+    }
+
+    private static void set(@NotNull Connection connection, @NotNull Map<String, Object> variables) throws SQLException {
+        StringJoiner query = new StringJoiner(", ", "SET ", ";");
+        for (Map.Entry<String, Object> variable : variables.entrySet()) {
+            query.add("SESSION " + variable.getKey() + " = " + literal(variable.getValue()));
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(query.toString());
+        }
+    }
+
+    @NotNull
+    private static String literal(@Nullable Object value) {
+        if (value == null)
+            return "DEFAULT";
+        if (value instanceof Boolean bool)
+            return bool ? "1" : "0";
+        if (value instanceof Number)
+            return value.toString();
+        return "'" + value.toString().replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+}
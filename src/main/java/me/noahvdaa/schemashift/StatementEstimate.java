@@ -0,0 +1,38 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * The estimated impact of a single statement of a pending migration.
+ *
+ * @param statement    the statement, possibly abbreviated, or a description of a group of statements
+ * @param table        the table the statement affects, or null if unknown
+ * @param tableRows    the approximate amount of rows in the table, or -1 if unknown
+ * @param tableBytes   the approximate size of the table's data and indexes in bytes, or -1 if unknown
+ * @param examinedRows the amount of rows the statement is expected to examine, or -1 if unknown
+ * @param risk         how likely the statement is to stall the database
+ * @param reason       a short explanation of the risk
+ */
+public record StatementEstimate(@NotNull String statement, @Nullable String table, long tableRows, long tableBytes, long examinedRows, @NotNull Risk risk, @NotNull String reason) {
+
+    /**
+     * Creates a new statement estimate.
+     *
+     * @param statement    the statement, possibly abbreviated, or a description of a group of statements
+     * @param table        the table the statement affects, or null if unknown
+     * @param tableRows    the approximate amount of rows in the table, or -1 if unknown
+     * @param tableBytes   the approximate size of the table's data and indexes in bytes, or -1 if unknown
+     * @param examinedRows the amount of rows the statement is expected to examine, or -1 if unknown
+     * @param risk         how likely the statement is to stall the database
+     * @param reason       a short explanation of the risk
+     */
+    public StatementEstimate {
+        Objects.requireNonNull(statement, "statement may not be null");
+        Objects.requireNonNull(risk, "risk may not be null");
+        Objects.requireNonNull(reason, "reason may not be null");
+    }
+
+}
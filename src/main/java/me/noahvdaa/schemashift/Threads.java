@@ -0,0 +1,44 @@
+package me.noahvdaa.schemashift;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ApiStatus.Internal
+final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Creates a thread factory for SchemaShift's worker threads.
+     * Virtual threads are used when the running JVM supports them,
+     * otherwise daemon platform threads are created.
+     *
+     * @param name the name prefix for the created threads
+     * @return the thread factory
+     */
+    @NotNull
+    static ThreadFactory factory(@NotNull String name) {
+        try {
+            // Thread.ofVirtual() only exists on Java 21+, which we can't compile against.
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+            builder = nameMethod.invoke(builder, name + "-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException ignored) {
+        }
+
+        AtomicLong counter = new AtomicLong();
+        return (runnable) -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
@@ -0,0 +1,218 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A migration that updates a large table in small chunks, walking the table by ranges
+ * of its numeric primary key. Every chunk is committed on its own, so the backfill
+ * never holds locks for long and doesn't produce one huge transaction for replicas to apply.
+ * <p>
+ * The update query must contain exactly two parameters: the inclusive lower and the
+ * exclusive upper bound of the key range to update, for example
+ * {@code UPDATE `users` SET `name_lower` = LOWER(`name`) WHERE `id` >= ? AND `id` < ?}.
+ * An exclusive bound can't cover a key of {@link Long#MAX_VALUE}, so if the table contains
+ * that key, the last {@code < ?} of the query is changed to {@code <= ?} for the final chunk.
+ * <p>
+ * The chunk size adapts to the observed latency: it grows while chunks complete well within
+ * the target chunk time and shrinks when they take longer. Optionally, the backfill sleeps
+ * after each chunk for a fraction of the time the chunk took, leaving room for other load.
+ * Progress is saved in the {@link MigrationContext} together with each chunk, so an
+ * interrupted backfill continues after the last committed chunk.
+ * <p>
+ * Rows inserted beyond the largest key that existed when the backfill started are not updated.
+ */
+public final class BackfillMigration implements Migration {
+
+    private final static Pattern EXCLUSIVE_UPPER_BOUND = Pattern.compile("(?<![<>=!])<(?![=>])(\\s*\\?)");
+
+    private final String id;
+    private final String table;
+    private final String keyColumn;
+    private final String updateQuery;
+    private final int initialChunkSize;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final Duration targetChunkTime;
+    private final double throttleRatio;
+    private final ProgressListener progressListener;
+
+    BackfillMigration(@NotNull String id, @NotNull String table, @NotNull String keyColumn, @NotNull String updateQuery) {
+        this(id, table, keyColumn, updateQuery, 1_000, 100, 100_000, Duration.ofMillis(500), 0, null);
+    }
+
+    private BackfillMigration(@NotNull String id, @NotNull String table, @NotNull String keyColumn, @NotNull String updateQuery, int initialChunkSize, int minChunkSize, int maxChunkSize, @NotNull Duration targetChunkTime, double throttleRatio, @Nullable ProgressListener progressListener) {
+        this.id = Objects.requireNonNull(id, "id may not be null");
+        this.table = Objects.requireNonNull(table, "table may not be null");
+        this.keyColumn = Objects.requireNonNull(keyColumn, "keyColumn may not be null");
+        this.updateQuery = Objects.requireNonNull(updateQuery, "updateQuery may not be null");
+        if (minChunkSize < 1 || initialChunkSize < minChunkSize || maxChunkSize < initialChunkSize)
+            throw new IllegalArgumentException("chunk sizes must satisfy 1 <= min <= initial <= max");
+        this.initialChunkSize = initialChunkSize;
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.targetChunkTime = Objects.requireNonNull(targetChunkTime, "targetChunkTime may not be null");
+        if (targetChunkTime.isNegative() || targetChunkTime.isZero())
+            throw new IllegalArgumentException("targetChunkTime must be positive");
+        if (throttleRatio < 0)
+            throw new IllegalArgumentException("throttleRatio may not be negative");
+        this.throttleRatio = throttleRatio;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Returns a copy of this backfill with the specified chunk sizes, in key range units.
+     * Defaults to an initial size of 1000, a minimum of 100 and a maximum of 100000.
+     *
+     * @param initial the chunk size to start with
+     * @param min     the smallest chunk size to shrink to
+     * @param max     the largest chunk size to grow to
+     * @return the new backfill
+     */
+    @NotNull
+    public BackfillMigration withChunkSize(int initial, int min, int max) {
+        return new BackfillMigration(this.id, this.table, this.keyColumn, this.updateQuery, initial, min, max, this.targetChunkTime, this.throttleRatio, this.progressListener);
+    }
+
+    /**
+     * Returns a copy of this backfill that aims for chunks taking the specified time.
+     * Defaults to 500 milliseconds.
+     *
+     * @param targetChunkTime the time a single chunk should take
+     * @return the new backfill
+     */
+    @NotNull
+    public BackfillMigration withTargetChunkTime(@NotNull Duration targetChunkTime) {
+        return new BackfillMigration(this.id, this.table, this.keyColumn, this.updateQuery, this.initialChunkSize, this.minChunkSize, this.maxChunkSize, targetChunkTime, this.throttleRatio, this.progressListener);
+    }
+
+    /**
+     * Returns a copy of this backfill that sleeps after every chunk for the specified
+     * fraction of the time the chunk took. For example, a ratio of 0.5 keeps the backfill
+     * busy for roughly two thirds of the time. Defaults to 0, which never sleeps.
+     *
+     * @param throttleRatio the fraction of a chunk's duration to sleep after it
+     * @return the new backfill
+     */
+    @NotNull
+    public BackfillMigration withThrottle(double throttleRatio) {
+        return new BackfillMigration(this.id, this.table, this.keyColumn, this.updateQuery, this.initialChunkSize, this.minChunkSize, this.maxChunkSize, this.targetChunkTime, throttleRatio, this.progressListener);
+    }
+
+    /**
+     * Returns a copy of this backfill that reports its progress to the specified listener after every chunk.
+     *
+     * @param progressListener the listener to report progress to
+     * @return the new backfill
+     */
+    @NotNull
+    public BackfillMigration withProgressListener(@NotNull ProgressListener progressListener) {
+        Objects.requireNonNull(progressListener, "progressListener may not be null");
+        return new BackfillMigration(this.id, this.table, this.keyColumn, this.updateQuery, this.initialChunkSize, this.minChunkSize, this.maxChunkSize, this.targetChunkTime, this.throttleRatio, progressListener);
+    }
+
+    @NotNull
+    @Override
+    public String id() {
+        return this.id;
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection) throws SQLException {
+        this.apply(connection, MigrationContext.transientContext());
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection, @NotNull MigrationContext context) throws SQLException {
+        long[] bounds = Chunks.keyBounds(connection, this.table, this.keyColumn);
+        if (bounds == null)
+            return;
+
+        long next = bounds[0];
+        long last = bounds[1];
+        String savedProgress = context.progress();
+        if (savedProgress != null)
+            next = Math.max(next, Long.parseLong(savedProgress));
+
+        // Save the starting point before the first transaction begins, so any
+        // DDL needed to store progress doesn't implicitly commit a chunk.
+        context.saveProgress(Long.toString(next));
+
+        long targetNanos = this.targetChunkTime.toNanos();
+        long chunkSize = this.initialChunkSize;
+        long processedRows = 0;
+        long busyNanos = 0;
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement update = connection.prepareStatement(this.updateQuery)) {
+            while (next <= last) {
+                long end = Chunks.end(next, chunkSize);
+
+                long start = System.nanoTime();
+                if (end == Long.MAX_VALUE && last == Long.MAX_VALUE) {
+                    // The exclusive end would skip the row with the largest possible key.
+                    try (PreparedStatement inclusiveUpdate = connection.prepareStatement(this.inclusiveUpdateQuery())) {
+                        processedRows += this.updateChunk(inclusiveUpdate, next, end);
+                    }
+                } else {
+                    processedRows += this.updateChunk(update, next, end);
+                }
+                context.saveProgress(Long.toString(end));
+                connection.commit();
+                long elapsed = System.nanoTime() - start;
+                busyNanos += elapsed;
+                next = end;
+
+                if (this.progressListener != null)
+                    this.progressListener.progress(this.id, processedRows, -1, Chunks.rowsPerSecond(processedRows, busyNanos));
+
+                if (elapsed < targetNanos / 2) {
+                    chunkSize = Math.min(this.maxChunkSize, chunkSize * 2);
+                } else if (elapsed > targetNanos) {
+                    chunkSize = Math.max(this.minChunkSize, chunkSize * targetNanos / elapsed);
+                }
+
+                // The end is clamped at Long.MAX_VALUE, so the next chunk wouldn't move past it.
+                if (end == Long.MAX_VALUE)
+                    break;
+
+                if (this.throttleRatio > 0 && next <= last)
+                    Chunks.sleep((long) (elapsed * this.throttleRatio));
+            }
+        } catch (SQLException | RuntimeException e) {
+            Chunks.rollbackQuietly(connection, e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private int updateChunk(@NotNull PreparedStatement update, long start, long end) throws SQLException {
+        update.setLong(1, start);
+        update.setLong(2, end);
+        return update.executeUpdate();
+    }
+
+    @NotNull
+    private String inclusiveUpdateQuery() throws SQLException {
+        Matcher matcher = EXCLUSIVE_UPPER_BOUND.matcher(this.updateQuery);
+        int position = -1;
+        while (matcher.find()) {
+            position = matcher.start();
+        }
+        if (position == -1)
+            throw new SQLException("Backfill " + this.id + " can't update the row with key " + Long.MAX_VALUE + ", since its update query has no exclusive upper bound (< ?) to make inclusive");
+
+        return this.updateQuery.substring(0, position + 1) + "=" + this.updateQuery.substring(position + 1);
+    }
+
+}
@@ -1,36 +1,58 @@
 package me.noahvdaa.schemashift.migration;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
- * A basic implementation that executes a migration from the query string stored inside.
+ * A basic implementation that executes the statements of a SQL script one by one.
+ * The script is read from its {@link MigrationSource} while it's being executed, so
+ * large scripts never have to be held in memory, and the connection doesn't need
+ * to allow multiple queries per statement.
+ * <p>
+ * Optionally, consecutive {@code INSERT}, {@code UPDATE}, {@code DELETE} and {@code REPLACE}
+ * statements are sent to the database in JDBC batches. Any other statement flushes the
+ * pending batch before it's executed, so the order of execution is preserved.
  * This class can be extended to create a more advanced migration implementation, such as one
  * that runs multiple queries depending on the results of the previous one.
  */
 public class BaseMigrationImpl implements Migration {
 
+    private static final Set<String> SESSION_KEYWORDS = Set.of("SET", "USE");
     private final String id;
-    private final String query;
+    private final MigrationSource source;
+    private final int batchSize;
+    private final BatchListener batchListener;
 
     BaseMigrationImpl(@NotNull String id, @NotNull String query) {
+        this(id, MigrationSource.ofString(Objects.requireNonNull(query, "query may not be null")));
+    }
+
+    BaseMigrationImpl(@NotNull String id, @NotNull MigrationSource source) {
+        this(id, source, 1, null);
+    }
+
+    BaseMigrationImpl(@NotNull String id, @NotNull MigrationSource source, int batchSize, @Nullable BatchListener batchListener) {
         this.id = Objects.requireNonNull(id, "id may not be null");
-        this.query = Objects.requireNonNull(query, "query may not be null");
+        this.source = Objects.requireNonNull(source, "source may not be null");
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        this.batchSize = batchSize;
+        this.batchListener = batchListener;
     }
 
     @NotNull
@@ -39,33 +61,247 @@ public class BaseMigrationImpl implements Migration {
         return this.id;
     }
 
+    /**
+     * The source this migration's script is read from.
+     *
+     * @return this migration's source
+     */
+    @NotNull
+    @Override
+    public MigrationSource source() {
+        return this.source;
+    }
+
+    /**
+     * The maximum amount of data manipulation statements sent in a single batch.
+     * A batch size of 1 disables batching.
+     *
+     * @return this migration's batch size
+     */
+    public int batchSize() {
+        return this.batchSize;
+    }
+
     @Override
     public void apply(@NotNull Connection connection) throws SQLException {
-        try (Statement statement = connection.createStatement()) {
-            statement.execute(this.query);
+        this.apply(connection, MigrationContext.transientContext());
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection, @NotNull MigrationContext context) throws SQLException {
+        boolean checkpoint = context.checkpointStatements();
+        Checkpoint resumeFrom = checkpoint ? Checkpoint.parse(context.progress()) : null;
+
+        try (
+            SqlScriptReader script = new SqlScriptReader(this.source.openReader());
+            Statement statement = connection.createStatement()
+        ) {
+            CRC32 hash = new CRC32();
+            int read = 0;
+            int batched = 0;
+            String sql;
+            while ((sql = script.next()) != null) {
+                long executedHash = hash.getValue();
+                hash.update(sql.getBytes(StandardCharsets.UTF_8));
+                read++;
+
+                // Skip everything a previous attempt already executed, except for statements
+                // that changed the session, since this may be a different connection.
+                if (resumeFrom != null && read <= resumeFrom.statements()) {
+                    if (read == resumeFrom.statements())
+                        resumeFrom.verify(this.id, hash.getValue());
+                    if (SESSION_KEYWORDS.contains(SqlStatements.firstKeyword(sql)))
+                        this.execute(statement, sql, context);
+                    continue;
+                }
+
+                if (this.batchSize > 1 && SqlStatements.isDml(sql)) {
+                    statement.addBatch(sql);
+                    if (++batched == this.batchSize) {
+                        this.executeBatch(connection, statement, batched, context, checkpoint ? new Checkpoint(read, hash.getValue()) : null);
+                        batched = 0;
+                    }
+                    continue;
+                }
+
+                // Anything that isn't batched acts as a barrier, so flush the pending batch first.
+                if (batched > 0) {
+                    this.executeBatch(connection, statement, batched, context, checkpoint ? new Checkpoint(read - 1, executedHash) : null);
+                    batched = 0;
+                }
+
+                if (checkpoint && SqlStatements.isDml(sql)) {
+                    String dml = sql;
+                    this.checkpointed(connection, context, new Checkpoint(read, hash.getValue()), () -> this.execute(statement, dml, context));
+                } else {
+                    // Anything else may commit implicitly, so it can't share a transaction with its checkpoint.
+                    this.execute(statement, sql, context);
+                    if (checkpoint)
+                        context.saveProgress(new Checkpoint(read, hash.getValue()).toString());
+                }
+            }
+
+            if (batched > 0)
+                this.executeBatch(connection, statement, batched, context, checkpoint ? new Checkpoint(read, hash.getValue()) : null);
+
+            if (resumeFrom != null && read < resumeFrom.statements())
+                throw new SQLException("Migration " + this.id + " was changed since it was partially applied: it has " + read + " statements, but " + resumeFrom.statements() + " were already executed");
+        } catch (IOException e) {
+            throw new SQLException("Failed to read migration " + this.id + " from " + this.source, e);
         }
     }
 
+    private void execute(@NotNull Statement statement, @NotNull String sql, @NotNull MigrationContext context) throws SQLException {
+        StatementEvent event = new StatementEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        boolean hasResultSet = statement.execute(sql);
+        long rowsAffected = hasResultSet ? -1 : statement.getUpdateCount();
+
+        long duration = System.nanoTime() - start;
+        this.commitEvent(event, sql, rowsAffected);
+        context.statementExecuted(sql, Duration.ofNanos(duration), rowsAffected);
+    }
+
+    /**
+     * Executes a batch. If a checkpoint is specified, the batch and its checkpoint are committed
+     * in a single transaction, so a batch that fails halfway is executed again in full on the next attempt.
+     */
+    private void executeBatch(@NotNull Connection connection, @NotNull Statement statement, int statementCount, @NotNull MigrationContext context, @Nullable Checkpoint checkpoint) throws SQLException {
+        if (checkpoint == null) {
+            this.executeBatch(statement, statementCount, context);
+            return;
+        }
+
+        this.checkpointed(connection, context, checkpoint, () -> this.executeBatch(statement, statementCount, context));
+    }
+
+    /**
+     * Runs data manipulation statements and saves the checkpoint after them in a single transaction,
+     * so they are either executed and checkpointed, or executed again on the next attempt.
+     */
+    private void checkpointed(@NotNull Connection connection, @NotNull MigrationContext context, @NotNull Checkpoint checkpoint, @NotNull StatementWork work) throws SQLException {
+        // Leave transactions that were started by the caller alone.
+        if (!connection.getAutoCommit()) {
+            work.run();
+            context.saveProgress(checkpoint.toString());
+            return;
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            work.run();
+            context.saveProgress(checkpoint.toString());
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            Chunks.rollbackQuietly(connection, e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void executeBatch(@NotNull Statement statement, int statementCount, @NotNull MigrationContext context) throws SQLException {
+        StatementEvent event = new StatementEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        int[] updateCounts = statement.executeBatch();
+
+        long duration = System.nanoTime() - start;
+        long rowsAffected = 0;
+        for (int updateCount : updateCounts) {
+            // The driver may report SUCCESS_NO_INFO (-2) instead of actual counts.
+            if (updateCount < 0) {
+                rowsAffected = -1;
+                break;
+            }
+            rowsAffected += updateCount;
+        }
+
+        String description = "batch of " + statementCount + " statements";
+        this.commitEvent(event, description, rowsAffected);
+        context.statementExecuted(description, Duration.ofNanos(duration), rowsAffected);
+        if (this.batchListener != null)
+            this.batchListener.batchExecuted(this.id, updateCounts);
+    }
+
+    private void commitEvent(@NotNull StatementEvent event, @NotNull String statement, long rowsAffected) {
+        if (!event.shouldCommit())
+            return;
+
+        event.migrationId = this.id;
+        event.statement = statement.length() > StatementEvent.MAX_STATEMENT_LENGTH ? statement.substring(0, StatementEvent.MAX_STATEMENT_LENGTH) : statement;
+        event.rowsAffected = rowsAffected;
+        event.commit();
+    }
+
+    @FunctionalInterface
+    private interface StatementWork {
+
+        void run() throws SQLException;
+
+    }
+
+    /**
+     * The amount of statements of a script that were executed, and a hash of those statements
+     * to make sure the script wasn't changed before it's resumed.
+     */
+    private record Checkpoint(int statements, long hash) {
+
+        private final static String PREFIX = "statements:";
+
+        @Nullable
+        static Checkpoint parse(@Nullable String progress) {
+            if (progress == null || !progress.startsWith(PREFIX))
+                return null;
+
+            int separator = progress.indexOf(':', PREFIX.length());
+            if (separator == -1)
+                return null;
+
+            try {
+                return new Checkpoint(
+                    Integer.parseInt(progress.substring(PREFIX.length(), separator)),
+                    Long.parseLong(progress.substring(separator + 1), 16)
+                );
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        void verify(@NotNull String migrationId, long hash) throws SQLException {
+            if (this.hash != hash)
+                throw new SQLException("Migration " + migrationId + " was changed since it was partially applied: the first " + this.statements + " statements don't match the ones that were executed");
+        }
+
+        @Override
+        public String toString() {
+            return PREFIX + this.statements + ":" + Long.toHexString(this.hash);
+        }
+
+    }
+
     @NotNull
     static BaseMigrationImpl fromFile(@NotNull String id, @NotNull File file, @NotNull Charset charset) throws IOException {
         Objects.requireNonNull(file, "file may not be null");
+        if (!file.isFile())
+            throw new FileNotFoundException("File " + file + " not found.");
 
-        try (FileInputStream is = new FileInputStream(file)) {
-            return fromStream(id, is, charset);
-        }
+        // The file is only read once the migration is applied.
+        return new BaseMigrationImpl(id, MigrationSource.ofFile(file, charset));
     }
 
     @NotNull
     static BaseMigrationImpl fromResource(@NotNull String id, @NotNull ClassLoader classLoader, @NotNull String resourcePath, @NotNull Charset charset) throws IOException {
         Objects.requireNonNull(classLoader, "classLoader may not be null");
         Objects.requireNonNull(resourcePath, "resourcePath may not be null");
+        if (classLoader.getResource(resourcePath) == null)
+            throw new FileNotFoundException("Resource " + resourcePath + " not found.");
 
-        try (InputStream stream = classLoader.getResourceAsStream(resourcePath)) {
-            if (stream == null)
-                throw new FileNotFoundException("Resource " + resourcePath + " not found.");
-
-            return fromStream(id, stream, charset);
-        }
+        // The resource is only read once the migration is applied.
+        return new BaseMigrationImpl(id, MigrationSource.ofResource(classLoader, resourcePath, charset));
     }
 
     @NotNull
@@ -73,32 +309,17 @@ public class BaseMigrationImpl implements Migration {
         Objects.requireNonNull(classLoader, "classLoader may not be null");
         Objects.requireNonNull(folderPath, "folderPath may not be null");
 
-        List<Migration> migrations = new ArrayList<>();
+        List<String> resources = ResourceScanner.list(classLoader, folderPath);
+        if (resources.isEmpty() && classLoader.getResource(folderPath) == null)
+            throw new FileNotFoundException("Resource folder " + folderPath + " not found.");
 
-        try (
-            InputStream in = classLoader.getResourceAsStream(folderPath);
-            BufferedReader br = new BufferedReader(new InputStreamReader(in))
-        ) {
-            String resource;
-
-            while ((resource = br.readLine()) != null) {
-                migrations.add(fromResource(resource, classLoader, folderPath + "/" + resource, StandardCharsets.UTF_8));
-            }
+        List<Migration> migrations = new ArrayList<>(resources.size());
+        for (String resource : resources) {
+            // The scanner only returns existing resources, so there's no need to look each one up again.
+            migrations.add(new BaseMigrationImpl(Compression.stripExtension(resource), MigrationSource.ofResource(classLoader, folderPath + "/" + resource, StandardCharsets.UTF_8)));
         }
 
         return migrations;
     }
 
-    @NotNull
-    static BaseMigrationImpl fromStream(@NotNull String id, @NotNull InputStream stream, @NotNull Charset charset) throws IOException {
-        Objects.requireNonNull(id, "id may not be null");
-        Objects.requireNonNull(stream, "stream may not be null");
-        Objects.requireNonNull(charset, "charset may not be null");
-
-        byte[] data = stream.readAllBytes();
-        String query = new String(data, charset);
-
-        return new BaseMigrationImpl(id, query);
-    }
-
 }
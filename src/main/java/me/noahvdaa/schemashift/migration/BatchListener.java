@@ -0,0 +1,20 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the update counts of every batch executed by a batched migration,
+ * for example to verify the amount of inserted rows.
+ */
+@FunctionalInterface
+public interface BatchListener {
+
+    /**
+     * Called after a batch of statements was executed.
+     *
+     * @param migrationId  the id of the migration the batch belongs to
+     * @param updateCounts the update counts of the statements in the batch, as returned by the driver
+     */
+    void batchExecuted(@NotNull String migrationId, int @NotNull [] updateCounts);
+
+}
@@ -0,0 +1,89 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Shared helpers for migrations that walk a table in chunks of its numeric key.
+ */
+@ApiStatus.Internal
+final class Chunks {
+
+    private Chunks() {
+    }
+
+    /**
+     * Looks up the smallest and largest key of the specified table.
+     *
+     * @param connection the connection to query
+     * @param table      the table to query
+     * @param keyColumn  the numeric key column
+     * @return the smallest and largest key, or null if the table is empty
+     * @throws SQLException if the table could not be queried
+     */
+    @Nullable
+    static long[] keyBounds(@NotNull Connection connection, @NotNull String table, @NotNull String keyColumn) throws SQLException {
+        String key = SqlStatements.quoteIdentifier(keyColumn);
+        String query = "SELECT MIN(" + key + "), MAX(" + key + ") FROM " + SqlStatements.quoteIdentifier(table);
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(query);
+            if (!resultSet.next())
+                return null;
+
+            long min = resultSet.getLong(1);
+            if (resultSet.wasNull())
+                return null;
+
+            return new long[]{min, resultSet.getLong(2)};
+        }
+    }
+
+    /**
+     * Returns the exclusive end of the chunk starting at the specified key, without overflowing.
+     * The end is clamped at {@link Long#MAX_VALUE}, so callers must stop once it's reached,
+     * and make that last chunk inclusive if the table contains {@link Long#MAX_VALUE} itself.
+     *
+     * @param start     the inclusive start of the chunk
+     * @param chunkSize the size of the chunk
+     * @return the exclusive end of the chunk
+     */
+    static long end(long start, long chunkSize) {
+        return start > Long.MAX_VALUE - chunkSize ? Long.MAX_VALUE : start + chunkSize;
+    }
+
+    /**
+     * Returns the throughput for the specified amount of rows, or 0 if no measurable time has
+     * passed yet, so progress listeners never see an infinite rate.
+     *
+     * @param rows  the amount of rows processed
+     * @param nanos the time spent processing them, in nanoseconds
+     * @return the amount of rows processed per second
+     */
+    static double rowsPerSecond(long rows, long nanos) {
+        return nanos > 0 ? rows / (nanos / 1_000_000_000d) : 0;
+    }
+
+    static void sleep(long nanos) throws SQLException {
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while throttling", e);
+        }
+    }
+
+    static void rollbackQuietly(@NotNull Connection connection, @NotNull Exception cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException rollbackException) {
+            cause.addSuppressed(rollbackException);
+        }
+    }
+
+}
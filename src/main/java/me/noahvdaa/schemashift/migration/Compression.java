@@ -0,0 +1,89 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses migration scripts based on their file extension. Scripts are decompressed
+ * while they're being read, so they never have to be held in memory.
+ * <p>
+ * Gzip ({@code .gz}) is always supported. Zstandard ({@code .zst}) requires
+ * {@code com.github.luben:zstd-jni} on the classpath.
+ */
+@ApiStatus.Internal
+final class Compression {
+
+    private final static String GZIP_EXTENSION = ".gz";
+    private final static String ZSTD_EXTENSION = ".zst";
+    private final static String ZSTD_INPUT_STREAM = "com.github.luben.zstd.ZstdInputStream";
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+    private Compression() {
+    }
+
+    /**
+     * Wraps the stream of the specified file in a decompressing stream, if the file is compressed.
+     *
+     * @param name   the name or path of the file
+     * @param stream the raw stream of the file
+     * @return the decompressed stream
+     * @throws IOException if the stream could not be decompressed
+     */
+    @NotNull
+    static InputStream decompress(@NotNull String name, @NotNull InputStream stream) throws IOException {
+        try {
+            if (name.endsWith(GZIP_EXTENSION))
+                return new GZIPInputStream(stream, BUFFER_SIZE);
+            if (name.endsWith(ZSTD_EXTENSION))
+                return zstd(name, stream);
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+        return stream;
+    }
+
+    /**
+     * Removes the compression extension from the specified file name, so compressing
+     * a migration's file doesn't change the migration's id.
+     *
+     * @param name the file name
+     * @return the file name without compression extension
+     */
+    @NotNull
+    static String stripExtension(@NotNull String name) {
+        if (name.endsWith(GZIP_EXTENSION))
+            return name.substring(0, name.length() - GZIP_EXTENSION.length());
+        if (name.endsWith(ZSTD_EXTENSION))
+            return name.substring(0, name.length() - ZSTD_EXTENSION.length());
+        return name;
+    }
+
+    @NotNull
+    private static InputStream zstd(@NotNull String name, @NotNull InputStream stream) throws IOException {
+        Constructor<?> constructor;
+        try {
+            // zstd-jni is an optional dependency, so it's only loaded when it's actually needed.
+            constructor = Class.forName(ZSTD_INPUT_STREAM).getConstructor(InputStream.class);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Reading " + name + " requires com.github.luben:zstd-jni on the classpath", e);
+        }
+
+        try {
+            return (InputStream) constructor.newInstance(stream);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException cause)
+                throw cause;
+            throw new IOException("Failed to decompress " + name, e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Failed to decompress " + name, e);
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package me.noahvdaa.schemashift.migration;
+
+/**
+ * The format of a data file imported by a {@link DataImportMigration}.
+ * Lines end with {@code \n}, optionally preceded by {@code \r}.
+ */
+public enum DataFormat {
+
+    /**
+     * Comma-separated values as described by RFC 4180. Fields may be enclosed in double quotes,
+     * in which case they may contain commas, line breaks and doubled quotes. An unquoted
+     * {@code NULL} is imported as NULL.
+     */
+    CSV,
+
+    /**
+     * Tab-separated values in MySQL's default {@code LOAD DATA} format. Tabs, line breaks and
+     * backslashes inside fields are escaped with a backslash, and {@code \N} is imported as NULL.
+     */
+    TSV
+
+}
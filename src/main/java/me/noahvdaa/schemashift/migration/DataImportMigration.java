@@ -0,0 +1,341 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * A migration that imports a CSV or TSV file into a table.
+ * <p>
+ * When the JDBC driver supports streaming data to {@code LOAD DATA LOCAL INFILE}, as MySQL
+ * Connector/J and MariaDB Connector/J do, the file is streamed to the server in a single statement.
+ * This requires local infile to be enabled on both the client ({@code allowLoadLocalInfile=true})
+ * and the server ({@code local_infile=ON}). Otherwise the rows are inserted with batched prepared
+ * statements, committing every batch together with the migration's progress, so an interrupted
+ * import continues after the last committed batch.
+ * <p>
+ * Either way, the file is read while it's imported, so it never has to be held in memory.
+ */
+public final class DataImportMigration implements Migration {
+
+    private final static String LOAD_DATA_QUERY = """
+        LOAD DATA LOCAL INFILE 'schemashift.%s' INTO TABLE %s %s %s %s (%s);
+        """;
+    private final static String INSERT_QUERY = """
+        INSERT INTO %s (%s) VALUES (%s);
+        """;
+    private final static String PROGRESS_PREFIX = "rows:";
+    private final static List<String> LOCAL_INFILE_STATEMENT_CLASSES = List.of(
+        "com.mysql.cj.jdbc.JdbcStatement",
+        "org.mariadb.jdbc.Statement"
+    );
+    private final static int LOCAL_INFILE_DISABLED_ERROR_CODE = 1148;
+    private final static int CLIENT_LOCAL_FILES_DISABLED_ERROR_CODE = 3948;
+    private final static int CRLF_DETECTION_LIMIT = 64 * 1024;
+
+    private final String id;
+    private final MigrationSource source;
+    private final DataFormat format;
+    private final String table;
+    private final List<String> columns;
+    private final boolean header;
+    private final int batchSize;
+    private final boolean loadData;
+    private final ProgressListener progressListener;
+
+    DataImportMigration(@NotNull String id, @NotNull MigrationSource source, @NotNull DataFormat format, @NotNull String table, @NotNull List<String> columns) {
+        this(id, source, format, table, columns, false, 1_000, true, null);
+    }
+
+    private DataImportMigration(@NotNull String id, @NotNull MigrationSource source, @NotNull DataFormat format, @NotNull String table, @NotNull List<String> columns, boolean header, int batchSize, boolean loadData, @Nullable ProgressListener progressListener) {
+        this.id = Objects.requireNonNull(id, "id may not be null");
+        this.source = Objects.requireNonNull(source, "source may not be null");
+        this.format = Objects.requireNonNull(format, "format may not be null");
+        this.table = Objects.requireNonNull(table, "table may not be null");
+        this.columns = List.copyOf(Objects.requireNonNull(columns, "columns may not be null"));
+        if (this.columns.isEmpty())
+            throw new IllegalArgumentException("at least one column must be specified");
+        this.header = header;
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        this.batchSize = batchSize;
+        this.loadData = loadData;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Returns a copy of this import that skips the first line of the file, which contains column names.
+     *
+     * @return the new import
+     */
+    @NotNull
+    public DataImportMigration withHeader() {
+        return new DataImportMigration(this.id, this.source, this.format, this.table, this.columns, true, this.batchSize, this.loadData, this.progressListener);
+    }
+
+    /**
+     * Returns a copy of this import that inserts the specified amount of rows per batch,
+     * when {@code LOAD DATA LOCAL INFILE} can't be used. Defaults to 1000.
+     *
+     * @param batchSize the amount of rows per batch
+     * @return the new import
+     */
+    @NotNull
+    public DataImportMigration withBatchSize(int batchSize) {
+        return new DataImportMigration(this.id, this.source, this.format, this.table, this.columns, this.header, batchSize, this.loadData, this.progressListener);
+    }
+
+    /**
+     * Returns a copy of this import that always inserts rows with batched prepared
+     * statements, even if the driver supports {@code LOAD DATA LOCAL INFILE}.
+     *
+     * @return the new import
+     */
+    @NotNull
+    public DataImportMigration withoutLoadData() {
+        return new DataImportMigration(this.id, this.source, this.format, this.table, this.columns, this.header, this.batchSize, false, this.progressListener);
+    }
+
+    /**
+     * Returns a copy of this import that reports its progress to the specified listener. Batched
+     * imports report after every batch, {@code LOAD DATA} imports once the file was loaded.
+     *
+     * @param progressListener the listener to report progress to
+     * @return the new import
+     */
+    @NotNull
+    public DataImportMigration withProgressListener(@NotNull ProgressListener progressListener) {
+        Objects.requireNonNull(progressListener, "progressListener may not be null");
+        return new DataImportMigration(this.id, this.source, this.format, this.table, this.columns, this.header, this.batchSize, this.loadData, progressListener);
+    }
+
+    @NotNull
+    @Override
+    public String id() {
+        return this.id;
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection) throws SQLException {
+        this.apply(connection, MigrationContext.transientContext());
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection, @NotNull MigrationContext context) throws SQLException {
+        String savedProgress = context.progress();
+        // An interrupted batched import can only be continued by another batched import.
+        if (savedProgress == null && this.loadData && this.loadData(connection))
+            return;
+
+        long skip = savedProgress != null && savedProgress.startsWith(PROGRESS_PREFIX) ? Long.parseLong(savedProgress.substring(PROGRESS_PREFIX.length())) : 0;
+        this.insertBatched(connection, context, skip);
+    }
+
+    /**
+     * Streams the file to {@code LOAD DATA LOCAL INFILE}, if the driver and server allow it.
+     *
+     * @return whether the file was loaded
+     */
+    private boolean loadData(@NotNull Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            LocalInfile localInfile = LocalInfile.find(statement);
+            if (localInfile == null)
+                return false;
+
+            long start = System.nanoTime();
+            long rows;
+            try (BufferedInputStream stream = new BufferedInputStream(this.source.openStream())) {
+                boolean crlf = usesCrlf(stream);
+                localInfile.setStream(stream);
+                try {
+                    rows = statement.executeUpdate(this.loadDataQuery(crlf));
+                } finally {
+                    localInfile.setStream(null);
+                }
+            } catch (SQLException e) {
+                if (isLocalInfileDisabled(e))
+                    return false;
+                throw e;
+            } catch (IOException | ReflectiveOperationException e) {
+                throw new SQLException("Failed to import " + this.source + " into " + this.table, e instanceof InvocationTargetException ? e.getCause() : e);
+            }
+
+            if (this.progressListener != null)
+                this.progressListener.progress(this.id, rows, 0, Chunks.rowsPerSecond(rows, System.nanoTime() - start));
+            return true;
+        }
+    }
+
+    private void insertBatched(@NotNull Connection connection, @NotNull MigrationContext context, long skip) throws SQLException {
+        // Save the starting point before the first transaction begins, so any
+        // DDL needed to store progress doesn't implicitly commit a batch.
+        context.saveProgress(PROGRESS_PREFIX + skip);
+
+        long start = System.nanoTime();
+        long rows = skip;
+        int batched = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (
+            DelimitedReader reader = new DelimitedReader(this.source.openReader(), this.format);
+            PreparedStatement insert = connection.prepareStatement(this.insertQuery())
+        ) {
+            if (this.header)
+                reader.next();
+            for (long skipped = 0; skipped < skip; skipped++) {
+                if (reader.next() == null)
+                    throw new SQLException("Import " + this.id + " was changed since it was partially applied: it has fewer than " + skip + " rows");
+            }
+
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                if (record.size() != this.columns.size())
+                    throw new SQLException("Line " + reader.lineNumber() + " of " + this.source + " has " + record.size() + " fields, expected " + this.columns.size());
+
+                for (int i = 0; i < record.size(); i++) {
+                    String value = record.get(i);
+                    if (value == null) {
+                        insert.setNull(i + 1, Types.VARCHAR);
+                    } else {
+                        insert.setString(i + 1, value);
+                    }
+                }
+                insert.addBatch();
+
+                if (++batched == this.batchSize) {
+                    rows += this.flush(connection, context, insert, rows + batched, start, skip);
+                    batched = 0;
+                }
+            }
+
+            if (batched > 0)
+                this.flush(connection, context, insert, rows + batched, start, skip);
+        } catch (IOException e) {
+            SQLException failure = new SQLException("Failed to read " + this.source, e);
+            Chunks.rollbackQuietly(connection, failure);
+            throw failure;
+        } catch (SQLException | RuntimeException e) {
+            Chunks.rollbackQuietly(connection, e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private int flush(@NotNull Connection connection, @NotNull MigrationContext context, @NotNull PreparedStatement insert, long rows, long start, long skipped) throws SQLException {
+        int batchRows = insert.executeBatch().length;
+        context.saveProgress(PROGRESS_PREFIX + rows);
+        connection.commit();
+
+        if (this.progressListener != null)
+            this.progressListener.progress(this.id, rows, -1, Chunks.rowsPerSecond(rows - skipped, System.nanoTime() - start));
+        return batchRows;
+    }
+
+    /**
+     * Returns whether the first line of the stream ends in {@code \r\n}, without consuming it.
+     * The batched fallback handles either line ending, but {@code LOAD DATA} needs to be told.
+     */
+    private static boolean usesCrlf(@NotNull BufferedInputStream stream) throws IOException {
+        stream.mark(CRLF_DETECTION_LIMIT);
+        try {
+            int previous = -1;
+            for (int i = 0; i < CRLF_DETECTION_LIMIT; i++) {
+                int c = stream.read();
+                if (c == -1 || c == '\n')
+                    return c == '\n' && previous == '\r';
+                previous = c;
+            }
+            return false;
+        } finally {
+            stream.reset();
+        }
+    }
+
+    @NotNull
+    private String loadDataQuery(boolean crlf) {
+        String fields = this.format == DataFormat.CSV
+            ? "FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''"
+            : "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\'";
+        String characterSet = this.source.charset().equals(StandardCharsets.UTF_8) ? "CHARACTER SET utf8mb4" : "";
+        String lines = (crlf ? "LINES TERMINATED BY '\\r\\n'" : "LINES TERMINATED BY '\\n'") + (this.header ? " IGNORE 1 LINES" : "");
+        return String.format(LOAD_DATA_QUERY, this.format.name().toLowerCase(Locale.ROOT), SqlStatements.quoteIdentifier(this.table), characterSet, fields, lines, this.quotedColumns());
+    }
+
+    @NotNull
+    private String insertQuery() {
+        StringJoiner placeholders = new StringJoiner(", ");
+        for (int i = 0; i < this.columns.size(); i++) {
+            placeholders.add("?");
+        }
+        return String.format(INSERT_QUERY, SqlStatements.quoteIdentifier(this.table), this.quotedColumns(), placeholders);
+    }
+
+    @NotNull
+    private String quotedColumns() {
+        StringJoiner columns = new StringJoiner(", ");
+        for (String column : this.columns) {
+            columns.add(SqlStatements.quoteIdentifier(column));
+        }
+        return columns.toString();
+    }
+
+    private static boolean isLocalInfileDisabled(@NotNull SQLException exception) {
+        return exception.getErrorCode() == LOCAL_INFILE_DISABLED_ERROR_CODE
+            || exception.getErrorCode() == CLIENT_LOCAL_FILES_DISABLED_ERROR_CODE
+            || (exception.getMessage() != null && exception.getMessage().contains("Loading local data is disabled"));
+    }
+
+    /**
+     * A driver's statement that accepts a stream for {@code LOAD DATA LOCAL INFILE}.
+     */
+    private record LocalInfile(@NotNull Object statement, @NotNull Method setStreamMethod) {
+
+        /**
+         * Finds the driver's statement, unwrapping the statement if it was wrapped by a connection pool.
+         *
+         * @return the statement, or null if the driver doesn't support streaming local infiles
+         */
+        @Nullable
+        static LocalInfile find(@NotNull Statement statement) throws SQLException {
+            for (String className : LOCAL_INFILE_STATEMENT_CLASSES) {
+                Class<?> statementClass;
+                try {
+                    statementClass = Class.forName(className, false, statement.getClass().getClassLoader());
+                } catch (ClassNotFoundException e) {
+                    continue;
+                }
+
+                if (!statement.isWrapperFor(statementClass))
+                    continue;
+
+                try {
+                    return new LocalInfile(statement.unwrap(statementClass), statementClass.getMethod("setLocalInfileInputStream", InputStream.class));
+                } catch (NoSuchMethodException ignored) {
+                }
+            }
+            return null;
+        }
+
+        void setStream(@Nullable InputStream stream) throws ReflectiveOperationException {
+            this.setStreamMethod.invoke(this.statement, stream);
+        }
+
+    }
+
+}
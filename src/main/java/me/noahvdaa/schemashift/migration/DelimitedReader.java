@@ -0,0 +1,155 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV or TSV file one at a time, interpreting fields
+ * the same way MySQL's {@code LOAD DATA} does for the respective format.
+ */
+@ApiStatus.Internal
+final class DelimitedReader implements Closeable {
+
+    private final static String CSV_NULL = "NULL";
+
+    private final BufferedReader reader;
+    private final DataFormat format;
+    private long lineNumber = 0;
+
+    DelimitedReader(@NotNull Reader reader, @NotNull DataFormat format) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+        this.format = format;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the fields of the next record, with null for NULL fields, or null at the end of the file
+     * @throws IOException if the file could not be read, or contains an unterminated quoted field
+     */
+    @Nullable
+    List<String> next() throws IOException {
+        int c = this.reader.read();
+        if (c == -1)
+            return null;
+
+        this.lineNumber++;
+        return this.format == DataFormat.CSV ? this.nextCsv(c) : this.nextTsv(c);
+    }
+
+    long lineNumber() {
+        return this.lineNumber;
+    }
+
+    @NotNull
+    private List<String> nextCsv(int c) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (c == -1)
+                    throw new IOException("Unterminated quoted field on line " + this.lineNumber);
+
+                if (c == '"') {
+                    this.reader.mark(1);
+                    if (this.reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        this.reader.reset();
+                    }
+                } else {
+                    if (c == '\n')
+                        this.lineNumber++;
+                    field.append((char) c);
+                }
+            } else if (c == -1 || c == '\n') {
+                stripCarriageReturn(field, c);
+                fields.add(!quoted && CSV_NULL.contentEquals(field) ? null : field.toString());
+                return fields;
+            } else if (c == ',') {
+                fields.add(!quoted && CSV_NULL.contentEquals(field) ? null : field.toString());
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '"' && field.length() == 0 && !quoted) {
+                quoted = true;
+                inQuotes = true;
+            } else {
+                field.append((char) c);
+            }
+            c = this.reader.read();
+        }
+    }
+
+    @NotNull
+    private List<String> nextTsv(int c) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isNull = false;
+        while (true) {
+            if (c == -1 || c == '\n') {
+                stripCarriageReturn(field, c);
+                fields.add(isNull ? null : field.toString());
+                return fields;
+            }
+
+            if (c == '\t') {
+                fields.add(isNull ? null : field.toString());
+                field.setLength(0);
+                isNull = false;
+            } else {
+                // \N is only NULL when it's the whole field.
+                if (isNull) {
+                    field.append('N');
+                    isNull = false;
+                }
+
+                if (c == '\\') {
+                    int escaped = this.reader.read();
+                    if (escaped == 'N' && field.length() == 0) {
+                        isNull = true;
+                    } else if (escaped == -1) {
+                        field.append('\\');
+                    } else {
+                        if (escaped == '\n')
+                            this.lineNumber++;
+                        field.append(switch (escaped) {
+                            case 't' -> '\t';
+                            case 'n' -> '\n';
+                            case 'r' -> '\r';
+                            case '0' -> '\0';
+                            case 'b' -> '\b';
+                            case 'Z' -> (char) 26;
+                            default -> (char) escaped;
+                        });
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            }
+            c = this.reader.read();
+        }
+    }
+
+    private static void stripCarriageReturn(@NotNull StringBuilder field, int c) {
+        // Records ending in \r\n shouldn't keep the \r.
+        if (c == '\n' && field.length() > 0 && field.charAt(field.length() - 1) == '\r')
+            field.setLength(field.length() - 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+}
@@ -0,0 +1,25 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.Set;
+
+@ApiStatus.Internal
+final class DependentMigration extends ForwardingMigration {
+
+    private final Set<String> dependencies;
+
+    DependentMigration(@NotNull Migration delegate, @NotNull Set<String> dependencies) {
+        super(delegate);
+        this.dependencies = Set.copyOf(Objects.requireNonNull(dependencies, "dependencies may not be null"));
+    }
+
+    @NotNull
+    @Override
+    public Set<String> dependencies() {
+        return this.dependencies;
+    }
+
+}
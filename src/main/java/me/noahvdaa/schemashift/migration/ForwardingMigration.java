@@ -0,0 +1,73 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A migration that forwards all calls to another migration.
+ * This class can be extended to change a single aspect of an existing migration,
+ * without having to know how that migration is implemented.
+ */
+public abstract class ForwardingMigration implements Migration {
+
+    private final Migration delegate;
+
+    /**
+     * Creates a new migration that forwards all calls to the specified migration.
+     *
+     * @param delegate the migration to forward calls to
+     */
+    protected ForwardingMigration(@NotNull Migration delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate may not be null");
+    }
+
+    /**
+     * The migration all calls are forwarded to.
+     *
+     * @return the delegate migration
+     */
+    @NotNull
+    protected Migration delegate() {
+        return this.delegate;
+    }
+
+    @NotNull
+    @Override
+    public String id() {
+        return this.delegate.id();
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection) throws SQLException {
+        this.delegate.apply(connection);
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection, @NotNull MigrationContext context) throws SQLException {
+        this.delegate.apply(connection, context);
+    }
+
+    @NotNull
+    @Override
+    public Set<String> dependencies() {
+        return this.delegate.dependencies();
+    }
+
+    @Nullable
+    @Override
+    public MigrationSource source() {
+        return this.delegate.source();
+    }
+
+    @NotNull
+    @Override
+    public SessionProfile sessionProfile() {
+        return this.delegate.sessionProfile();
+    }
+
+}
@@ -1,6 +1,7 @@
 package me.noahvdaa.schemashift.migration;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -10,6 +11,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * A migration that can be executed on a database connection.
@@ -17,6 +19,15 @@ import java.util.Objects;
  * The id of a migration should be unique and should never change,
  * since otherwise it won't be possible to determine whether a migration
  * has already been applied to the database.
+ * <p>
+ * Migrations created from files and resources only read their content when they're
+ * applied, and don't keep it in memory afterwards. Registering migrations that have
+ * already been applied therefore costs next to nothing.
+ * <p>
+ * Files and resources ending in {@code .gz} are decompressed with gzip while they're read, and files
+ * ending in {@code .zst} with Zstandard, which requires {@code com.github.luben:zstd-jni}.
+ * The compression extension is not part of generated ids, so {@code 0042_products.sql.gz}
+ * gets the same id as {@code 0042_products.sql}.
  */
 public interface Migration {
 
@@ -37,6 +48,60 @@ public interface Migration {
      */
     void apply(@NotNull Connection connection) throws SQLException;
 
+    /**
+     * Tries to apply this migration to the specified connection, with access to
+     * the specified context. SchemaShift always applies migrations through this method.
+     * By default, this simply calls {@link #apply(Connection)}; long-running migrations
+     * can override it to save their progress in the context.
+     *
+     * @param connection the connection to apply this migration to
+     * @param context    the context of this migration
+     * @throws SQLException if an error occurs while applying this migration
+     */
+    default void apply(@NotNull Connection connection, @NotNull MigrationContext context) throws SQLException {
+        this.apply(connection);
+    }
+
+    /**
+     * The ids of the migrations this migration depends on.
+     * <p>
+     * When migrations are applied in parallel, a migration that declares dependencies
+     * only waits for those migrations, while a migration that doesn't declare any waits
+     * for all migrations registered before it. Dependencies must be registered before
+     * the migrations that depend on them. Migrations are always applied sequentially
+     * in registration order otherwise.
+     *
+     * @return the ids of the migrations this migration depends on
+     */
+    @NotNull
+    default Set<String> dependencies() {
+        return Set.of();
+    }
+
+    /**
+     * The SQL script this migration executes, if it executes one. This allows tools
+     * such as {@link me.noahvdaa.schemashift.SchemaShift#plan()} to inspect the statements
+     * of a migration without applying it.
+     *
+     * @return the source of this migration's script, or null if it doesn't execute a script
+     */
+    @Nullable
+    default MigrationSource source() {
+        return null;
+    }
+
+    /**
+     * The session variables SchemaShift sets on the connection while this migration is applied.
+     * The previous values are restored afterwards. By default, the session is left as it is.
+     *
+     * @return this migration's session profile
+     * @see #withSessionProfile(Migration, SessionProfile)
+     */
+    @NotNull
+    default SessionProfile sessionProfile() {
+        return SessionProfile.NONE;
+    }
+
     /**
      * Creates a migration from the specified file.
      * The id will be generated from the filename, and the charset
@@ -44,14 +109,14 @@ public interface Migration {
      *
      * @param file the file to create the migration from
      * @return the created migration
-     * @throws IOException if an error occurs while reading the file
+     * @throws IOException if the file doesn't exist
      */
     @NotNull
     static Migration fromFile(@NotNull File file) throws IOException {
         Objects.requireNonNull(file, "file may not be null");
 
         return fromFile(
-            file.getName(),
+            Compression.stripExtension(file.getName()),
             file,
             StandardCharsets.UTF_8
         );
@@ -64,7 +129,7 @@ public interface Migration {
      * @param id   the id of the new migration
      * @param file the file to create the migration from
      * @return the created migration
-     * @throws IOException if an error occurs while reading the file
+     * @throws IOException if the file doesn't exist
      */
     @NotNull
     static Migration fromFile(@NotNull String id, @NotNull File file) throws IOException {
@@ -78,7 +143,7 @@ public interface Migration {
      * @param file    the file to create the migration from
      * @param charset the charset to read the file with
      * @return the created migration
-     * @throws IOException if an error occurs while reading the file
+     * @throws IOException if the file doesn't exist
      */
     @NotNull
     static Migration fromFile(@NotNull String id, @NotNull File file, @NotNull Charset charset) throws IOException {
@@ -93,14 +158,14 @@ public interface Migration {
      *
      * @param resourcePath the path to the resource to create the migration from
      * @return the created migration
-     * @throws IOException if an error occurs while reading the resource
+     * @throws IOException if the resource doesn't exist
      */
     @NotNull
     static Migration fromResource(@NotNull String resourcePath) throws IOException {
         Objects.requireNonNull(resourcePath, "resourcePath may not be null");
 
         return fromResource(
-            new File(resourcePath).getName(),
+            Compression.stripExtension(new File(resourcePath).getName()),
             Migration.class.getClassLoader(),
             resourcePath,
             StandardCharsets.UTF_8
@@ -115,7 +180,7 @@ public interface Migration {
      * @param classLoader  the classloader to load the resource with
      * @param resourcePath the path to the resource to create the migration from
      * @return the created migration
-     * @throws IOException if an error occurs while reading the resource
+     * @throws IOException if the resource doesn't exist
      */
     @NotNull
     static Migration fromResource(@NotNull String id, @NotNull ClassLoader classLoader, @NotNull String resourcePath) throws IOException {
@@ -135,7 +200,7 @@ public interface Migration {
      * @param resourcePath the path to the resource to create the migration from
      * @param charset      the charset to read the resource with
      * @return the created migration
-     * @throws IOException if an error occurs while reading the resource
+     * @throws IOException if the resource doesn't exist
      */
     @NotNull
     static Migration fromResource(@NotNull String id, @NotNull ClassLoader classLoader, @NotNull String resourcePath, @NotNull Charset charset) throws IOException {
@@ -146,10 +211,12 @@ public interface Migration {
      * Creates a list of migrations by scanning all the files in the specified resource folder.
      * The id of each migration will be generated from the filename,
      * and the charset will be assumed to be UTF-8.
+     * The folder may be an exploded directory or packaged inside a jar,
+     * and the migrations are returned sorted by filename.
      *
      * @param folderPath the path to the folder to scan
      * @return the list of migrations
-     * @throws IOException if an error occurs while reading the files
+     * @throws IOException if an error occurs while listing the folder
      */
     @NotNull
     static List<Migration> fromResourceFolder(@NotNull String folderPath) throws IOException {
@@ -168,7 +235,7 @@ public interface Migration {
      * @param classLoader the classloader to load the resources with
      * @param folderPath  the path to the folder to scan
      * @return the list of migrations
-     * @throws IOException if an error occurs while reading the files
+     * @throws IOException if an error occurs while listing the folder
      */
     @NotNull
     private static List<Migration> fromResourceFolder(@NotNull ClassLoader classLoader, @NotNull String folderPath) throws IOException {
@@ -178,8 +245,201 @@ public interface Migration {
         );
     }
 
+    /**
+     * Creates a list of migrations from a manifest generated at build time by {@link MigrationManifest}.
+     * Only the manifest itself is read; the classpath is not scanned.
+     * The classloader for this class will be used to load the manifest and the migrations.
+     *
+     * @param manifestPath the path to the manifest resource
+     * @return the list of migrations, in manifest order
+     * @throws IOException if the manifest doesn't exist or is malformed
+     */
+    @NotNull
+    static List<Migration> fromManifest(@NotNull String manifestPath) throws IOException {
+        return fromManifest(
+            Migration.class.getClassLoader(),
+            manifestPath
+        );
+    }
+
+    /**
+     * Creates a list of migrations from a manifest generated at build time by {@link MigrationManifest},
+     * with the specified classloader.
+     * Only the manifest itself is read; the classpath is not scanned.
+     *
+     * @param classLoader  the classloader to load the manifest and the migrations with
+     * @param manifestPath the path to the manifest resource
+     * @return the list of migrations, in manifest order
+     * @throws IOException if the manifest doesn't exist or is malformed
+     */
+    @NotNull
+    static List<Migration> fromManifest(@NotNull ClassLoader classLoader, @NotNull String manifestPath) throws IOException {
+        return MigrationManifest.fromResource(classLoader, manifestPath).migrations(classLoader);
+    }
+
+    /**
+     * Creates a migration that executes the statements of the script in the specified source.
+     * The source is only opened once the migration is applied, and every statement is
+     * executed as soon as it's read, so scripts of any size are applied with bounded memory.
+     *
+     * @param id     the id of the new migration
+     * @param source the source to read the script from
+     * @return the created migration
+     */
+    @NotNull
+    static Migration fromScript(@NotNull String id, @NotNull MigrationSource source) {
+        return new BaseMigrationImpl(
+            id,
+            source
+        );
+    }
+
+    /**
+     * Creates a migration that executes the statements of the script in the specified source,
+     * sending consecutive data manipulation statements to the database in batches of the specified size.
+     * Any other statement, such as DDL, flushes the pending batch before it's executed.
+     * <p>
+     * Note that MySQL Connector/J only sends a batch in a single round-trip if
+     * {@code rewriteBatchedStatements} is enabled on the connection.
+     *
+     * @param id        the id of the new migration
+     * @param source    the source to read the script from
+     * @param batchSize the maximum amount of statements per batch
+     * @return the created migration
+     */
+    @NotNull
+    static Migration fromScript(@NotNull String id, @NotNull MigrationSource source, int batchSize) {
+        return fromScript(id, source, batchSize, null);
+    }
+
+    /**
+     * Creates a migration that executes the statements of the script in the specified source,
+     * sending consecutive data manipulation statements to the database in batches of the specified size.
+     * Any other statement, such as DDL, flushes the pending batch before it's executed.
+     * The update counts of every batch are passed to the specified listener.
+     * <p>
+     * Note that MySQL Connector/J only sends a batch in a single round-trip if
+     * {@code rewriteBatchedStatements} is enabled on the connection.
+     *
+     * @param id            the id of the new migration
+     * @param source        the source to read the script from
+     * @param batchSize     the maximum amount of statements per batch
+     * @param batchListener the listener to pass the update counts of every batch to, or null
+     * @return the created migration
+     */
+    @NotNull
+    static Migration fromScript(@NotNull String id, @NotNull MigrationSource source, int batchSize, @Nullable BatchListener batchListener) {
+        return new BaseMigrationImpl(
+            id,
+            source,
+            batchSize,
+            batchListener
+        );
+    }
+
+    /**
+     * Creates a migration that runs the specified update query in chunks, walking the
+     * specified table by ranges of its numeric key column. The query must contain two
+     * parameters: the inclusive lower and exclusive upper bound of the key range.
+     * See {@link BackfillMigration} for details on chunking, throttling and resuming.
+     *
+     * @param id          the id of the new migration
+     * @param table       the table to walk
+     * @param keyColumn   the numeric primary key column of the table
+     * @param updateQuery the query to run for every chunk
+     * @return the created migration
+     */
+    @NotNull
+    static BackfillMigration backfill(@NotNull String id, @NotNull String table, @NotNull String keyColumn, @NotNull String updateQuery) {
+        return new BackfillMigration(
+            id,
+            table,
+            keyColumn,
+            updateQuery
+        );
+    }
+
+    /**
+     * Creates a migration that alters the specified table online, using a shadow table
+     * that is kept in sync with triggers while existing rows are copied in chunks of the
+     * table's numeric key column. See {@link OnlineSchemaChangeMigration} for details.
+     *
+     * @param id                 the id of the new migration
+     * @param table              the table to alter
+     * @param keyColumn          the numeric primary key column of the table
+     * @param alterSpecification the alter specification, for example {@code ADD COLUMN `x` INT NULL}
+     * @return the created migration
+     */
+    @NotNull
+    static OnlineSchemaChangeMigration onlineSchemaChange(@NotNull String id, @NotNull String table, @NotNull String keyColumn, @NotNull String alterSpecification) {
+        return new OnlineSchemaChangeMigration(
+            id,
+            table,
+            keyColumn,
+            alterSpecification
+        );
+    }
+
+    /**
+     * Creates a migration that imports a CSV or TSV file into the specified columns of a table.
+     * The file is streamed to {@code LOAD DATA LOCAL INFILE} if the driver and server allow it,
+     * and inserted with batched prepared statements otherwise.
+     * See {@link DataImportMigration} for the available options.
+     *
+     * @param id      the id of the new migration
+     * @param source  the file to import, for example {@link MigrationSource#ofResource(ClassLoader, String, Charset)}
+     * @param format  the format of the file
+     * @param table   the table to import into
+     * @param columns the columns the fields of each line are imported into, in order
+     * @return the created migration
+     */
+    @NotNull
+    static DataImportMigration importData(@NotNull String id, @NotNull MigrationSource source, @NotNull DataFormat format, @NotNull String table, @NotNull String... columns) {
+        return new DataImportMigration(
+            id,
+            source,
+            format,
+            table,
+            List.of(columns)
+        );
+    }
+
+    /**
+     * Returns a migration that behaves like the specified migration, but declares
+     * that it only depends on the specified migrations. This allows independent migrations
+     * to be applied in parallel, see {@link #dependencies()}.
+     *
+     * @param migration    the migration to declare dependencies for
+     * @param dependencies the ids of the migrations the migration depends on
+     * @return the migration with the declared dependencies
+     */
+    @NotNull
+    static Migration withDependencies(@NotNull Migration migration, @NotNull String... dependencies) {
+        return new DependentMigration(
+            migration,
+            Set.of(dependencies)
+        );
+    }
+
+    /**
+     * Returns a migration that behaves like the specified migration, but is applied with
+     * the specified session profile, for example {@link SessionProfile#BULK_LOAD}.
+     *
+     * @param migration      the migration to apply the profile to
+     * @param sessionProfile the session variables to set while the migration is applied
+     * @return the migration with the session profile
+     */
+    @NotNull
+    static Migration withSessionProfile(@NotNull Migration migration, @NotNull SessionProfile sessionProfile) {
+        return new ProfiledMigration(
+            migration,
+            sessionProfile
+        );
+    }
+
     /**
      * Creates a migration from the specified query.
+     * The query may contain multiple statements, which are executed one by one.
      *
      * @param id    the id of the new migration
      * @param query the query to create the migration from
@@ -0,0 +1,84 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Gives a migration access to SchemaShift while it's being applied.
+ * <p>
+ * Long-running migrations can store their progress here, so they can continue
+ * where they left off if they're interrupted. Progress is stored next to the
+ * SchemaShift meta table, on the same connection the migration is applied to,
+ * so saving progress participates in the migration's current transaction.
+ * Progress is removed once the migration completes.
+ */
+public interface MigrationContext {
+
+    /**
+     * Returns the progress last saved by this migration, if it was
+     * interrupted before it completed.
+     *
+     * @return the saved progress, or null if there is none
+     * @throws SQLException if the progress could not be read
+     */
+    @Nullable
+    String progress() throws SQLException;
+
+    /**
+     * Saves the progress of this migration, replacing any previously saved progress.
+     *
+     * @param progress the progress to save, or null to remove the saved progress
+     * @throws SQLException if the progress could not be saved
+     */
+    void saveProgress(@Nullable String progress) throws SQLException;
+
+    /**
+     * Returns whether script migrations should save a checkpoint after every statement,
+     * so a failed migration resumes at the statement that failed instead of starting over.
+     * Checkpoints are disabled by default, as saving one takes an extra query per statement.
+     *
+     * @return whether statement checkpoints are enabled
+     */
+    default boolean checkpointStatements() {
+        return false;
+    }
+
+    /**
+     * Reports that the migration executed a statement, so it can be passed on to
+     * any registered listeners. Does nothing by default.
+     *
+     * @param statement    the executed statement, or a description of the executed batch
+     * @param duration     the time it took to execute the statement
+     * @param rowsAffected the amount of affected rows, or -1 if unknown
+     */
+    default void statementExecuted(@NotNull String statement, @NotNull Duration duration, long rowsAffected) {
+    }
+
+    /**
+     * Returns a context that doesn't persist anything, for migrations that are
+     * applied outside of SchemaShift.
+     *
+     * @return a non-persistent context
+     */
+    @NotNull
+    static MigrationContext transientContext() {
+        return new MigrationContext() {
+            private String progress = null;
+
+            @Nullable
+            @Override
+            public String progress() {
+                return this.progress;
+            }
+
+            @Override
+            public void saveProgress(@Nullable String progress) {
+                this.progress = progress;
+            }
+        };
+    }
+
+}
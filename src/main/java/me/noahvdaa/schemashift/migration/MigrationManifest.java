@@ -0,0 +1,277 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A list of migration resources, generated at build time, that replaces
+ * scanning the classpath at runtime.
+ * <p>
+ * Every entry records the migration id, the resource path, the size in bytes and the
+ * SHA-256 hash of the resource. Loading migrations from a manifest only reads the
+ * manifest itself, and comparing the hashes of two manifests detects migrations that
+ * were changed after they were released, without reading any SQL.
+ * <p>
+ * A manifest is generated by running this class as a program, for example from a
+ * Gradle {@code JavaExec} task:
+ * {@code MigrationManifest <migrations directory> <resource folder> <output file>}.
+ */
+public final class MigrationManifest {
+
+    private static final String HEADER = "# schemashift-manifest v1";
+
+    private final List<Entry> entries;
+
+    private MigrationManifest(@NotNull List<Entry> entries) {
+        this.entries = List.copyOf(entries);
+    }
+
+    /**
+     * Returns all entries in this manifest, in migration order.
+     *
+     * @return all entries
+     */
+    @NotNull
+    public List<Entry> entries() {
+        return this.entries;
+    }
+
+    /**
+     * Creates a lazily loaded migration for every entry in this manifest.
+     * The resources are only read once a migration is applied.
+     *
+     * @param classLoader the classloader to load the resources with
+     * @return the migrations, in manifest order
+     */
+    @NotNull
+    public List<Migration> migrations(@NotNull ClassLoader classLoader) {
+        Objects.requireNonNull(classLoader, "classLoader may not be null");
+
+        List<Migration> migrations = new ArrayList<>(this.entries.size());
+        for (Entry entry : this.entries) {
+            migrations.add(new BaseMigrationImpl(entry.id(), MigrationSource.ofResource(classLoader, entry.resourcePath(), StandardCharsets.UTF_8)));
+        }
+        return migrations;
+    }
+
+    /**
+     * Returns the ids of all migrations in the specified (older) manifest that were
+     * changed or removed in this manifest. Released migrations should never change,
+     * so a non-empty result usually indicates a mistake.
+     *
+     * @param previous the older manifest to compare against
+     * @return the ids of all changed or removed migrations
+     */
+    @NotNull
+    public List<String> changedSince(@NotNull MigrationManifest previous) {
+        Objects.requireNonNull(previous, "previous may not be null");
+
+        Map<String, Entry> current = this.entries.stream().collect(Collectors.toMap(Entry::id, Function.identity()));
+        List<String> changed = new ArrayList<>();
+        for (Entry entry : previous.entries) {
+            Entry now = current.get(entry.id());
+            if (now == null || !now.sha256().equals(entry.sha256()))
+                changed.add(entry.id());
+        }
+        return changed;
+    }
+
+    /**
+     * Writes this manifest to the specified stream.
+     * The stream is not closed.
+     *
+     * @param stream the stream to write to
+     * @throws IOException if an error occurs while writing
+     */
+    public void write(@NotNull OutputStream stream) throws IOException {
+        Objects.requireNonNull(stream, "stream may not be null");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Entry entry : this.entries) {
+            writer.write(entry.id() + "\t" + entry.resourcePath() + "\t" + entry.size() + "\t" + entry.sha256());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Reads a manifest from the specified resource.
+     *
+     * @param classLoader  the classloader to load the manifest with
+     * @param resourcePath the path to the manifest resource
+     * @return the manifest
+     * @throws IOException if the manifest doesn't exist or is malformed
+     */
+    @NotNull
+    public static MigrationManifest fromResource(@NotNull ClassLoader classLoader, @NotNull String resourcePath) throws IOException {
+        Objects.requireNonNull(classLoader, "classLoader may not be null");
+        Objects.requireNonNull(resourcePath, "resourcePath may not be null");
+
+        try (InputStream stream = classLoader.getResourceAsStream(resourcePath)) {
+            if (stream == null)
+                throw new FileNotFoundException("Resource " + resourcePath + " not found.");
+
+            return read(stream);
+        }
+    }
+
+    /**
+     * Reads a manifest from the specified stream.
+     * The stream is not closed.
+     *
+     * @param stream the stream to read from
+     * @return the manifest
+     * @throws IOException if an error occurs while reading or the manifest is malformed
+     */
+    @NotNull
+    public static MigrationManifest read(@NotNull InputStream stream) throws IOException {
+        Objects.requireNonNull(stream, "stream may not be null");
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (!HEADER.equals(header))
+            throw new IOException("Not a SchemaShift manifest, or unsupported manifest version");
+
+        List<Entry> entries = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank())
+                continue;
+
+            String[] parts = line.split("\t");
+            if (parts.length != 4)
+                throw new IOException("Malformed manifest entry: " + line);
+
+            try {
+                entries.add(new Entry(parts[0], parts[1], Long.parseLong(parts[2]), parts[3]));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed manifest entry: " + line, e);
+            }
+        }
+        return new MigrationManifest(entries);
+    }
+
+    /**
+     * Generates a manifest for all files directly inside the specified directory, sorted by filename.
+     * The id of each migration will be generated from the filename.
+     *
+     * @param directory      the directory containing the migrations
+     * @param resourceFolder the resource folder the directory's files end up in at runtime
+     * @return the generated manifest
+     * @throws IOException if an error occurs while reading the files
+     */
+    @NotNull
+    public static MigrationManifest generate(@NotNull Path directory, @NotNull String resourceFolder) throws IOException {
+        Objects.requireNonNull(directory, "directory may not be null");
+        Objects.requireNonNull(resourceFolder, "resourceFolder may not be null");
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(Files::isRegularFile).sorted().toList();
+        }
+
+        List<Entry> entries = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            entries.add(new Entry(Compression.stripExtension(name), resourceFolder + "/" + name, Files.size(file), sha256(file)));
+        }
+        return new MigrationManifest(entries);
+    }
+
+    /**
+     * Generates a manifest file.
+     * Expects the migrations directory, the resource folder and the output file as arguments.
+     *
+     * @param args the program arguments
+     * @throws IOException if an error occurs while generating the manifest
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: MigrationManifest <migrations directory> <resource folder> <output file>");
+            System.exit(1);
+            return;
+        }
+
+        MigrationManifest manifest = generate(Path.of(args[0]), args[1]);
+        Path output = Path.of(args[2]);
+        if (output.getParent() != null)
+            Files.createDirectories(output.getParent());
+
+        try (OutputStream stream = Files.newOutputStream(output)) {
+            manifest.write(stream);
+        }
+    }
+
+    @NotNull
+    private static String sha256(@NotNull Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+
+        byte[] buffer = new byte[8192];
+        try (InputStream stream = Files.newInputStream(file)) {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * A single migration in a manifest.
+     *
+     * @param id           the id of the migration
+     * @param resourcePath the path to the migration's resource
+     * @param size         the size of the resource in bytes
+     * @param sha256       the hex encoded SHA-256 hash of the resource
+     */
+    public record Entry(@NotNull String id, @NotNull String resourcePath, long size, @NotNull String sha256) {
+
+        /**
+         * Creates a new manifest entry.
+         *
+         * @param id           the id of the migration
+         * @param resourcePath the path to the migration's resource
+         * @param size         the size of the resource in bytes
+         * @param sha256       the hex encoded SHA-256 hash of the resource
+         */
+        public Entry {
+            Objects.requireNonNull(id, "id may not be null");
+            Objects.requireNonNull(resourcePath, "resourcePath may not be null");
+            Objects.requireNonNull(sha256, "sha256 may not be null");
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A source a migration's content can be (re-)opened from, such as a file or a resource.
+ * Sources are only opened when their content is actually needed, and every
+ * caller is responsible for closing the streams it opens.
+ */
+@FunctionalInterface
+public interface MigrationSource {
+
+    /**
+     * Opens a new stream of this source's raw content.
+     *
+     * @return the new stream
+     * @throws IOException if the source could not be opened
+     */
+    @NotNull
+    InputStream openStream() throws IOException;
+
+    /**
+     * The charset this source's content is encoded in.
+     *
+     * @return the charset of this source
+     */
+    @NotNull
+    default Charset charset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Opens a new reader of this source's content, decoded with {@link #charset()}.
+     *
+     * @return the new reader
+     * @throws IOException if the source could not be opened
+     */
+    @NotNull
+    default Reader openReader() throws IOException {
+        return new InputStreamReader(this.openStream(), this.charset());
+    }
+
+    /**
+     * Creates a source for the specified string.
+     *
+     * @param content the content of the source
+     * @return the created source
+     */
+    @NotNull
+    static MigrationSource ofString(@NotNull String content) {
+        return new MigrationSources.StringSource(content);
+    }
+
+    /**
+     * Creates a source for the specified file.
+     *
+     * @param file    the file to read
+     * @param charset the charset to read the file with
+     * @return the created source
+     */
+    @NotNull
+    static MigrationSource ofFile(@NotNull File file, @NotNull Charset charset) {
+        return new MigrationSources.FileSource(file, charset);
+    }
+
+    /**
+     * Creates a source for the specified resource.
+     *
+     * @param classLoader  the classloader to load the resource with
+     * @param resourcePath the path to the resource
+     * @param charset      the charset to read the resource with
+     * @return the created source
+     */
+    @NotNull
+    static MigrationSource ofResource(@NotNull ClassLoader classLoader, @NotNull String resourcePath, @NotNull Charset charset) {
+        return new MigrationSources.ResourceSource(classLoader, resourcePath, charset);
+    }
+
+}
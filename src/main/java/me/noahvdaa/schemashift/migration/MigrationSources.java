@@ -0,0 +1,115 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+@ApiStatus.Internal
+final class MigrationSources {
+
+    private MigrationSources() {
+    }
+
+    static final class StringSource implements MigrationSource {
+
+        private final String content;
+
+        StringSource(@NotNull String content) {
+            this.content = Objects.requireNonNull(content, "content may not be null");
+        }
+
+        @NotNull
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(this.content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @NotNull
+        @Override
+        public Reader openReader() {
+            return new StringReader(this.content);
+        }
+
+        @Override
+        public String toString() {
+            return "query";
+        }
+
+    }
+
+    static final class FileSource implements MigrationSource {
+
+        private final File file;
+        private final Charset charset;
+
+        FileSource(@NotNull File file, @NotNull Charset charset) {
+            this.file = Objects.requireNonNull(file, "file may not be null");
+            this.charset = Objects.requireNonNull(charset, "charset may not be null");
+        }
+
+        @NotNull
+        @Override
+        public InputStream openStream() throws IOException {
+            return Compression.decompress(this.file.getName(), new FileInputStream(this.file));
+        }
+
+        @NotNull
+        @Override
+        public Charset charset() {
+            return this.charset;
+        }
+
+        @Override
+        public String toString() {
+            return "file " + this.file;
+        }
+
+    }
+
+    static final class ResourceSource implements MigrationSource {
+
+        private final ClassLoader classLoader;
+        private final String resourcePath;
+        private final Charset charset;
+
+        ResourceSource(@NotNull ClassLoader classLoader, @NotNull String resourcePath, @NotNull Charset charset) {
+            this.classLoader = Objects.requireNonNull(classLoader, "classLoader may not be null");
+            this.resourcePath = Objects.requireNonNull(resourcePath, "resourcePath may not be null");
+            this.charset = Objects.requireNonNull(charset, "charset may not be null");
+        }
+
+        @NotNull
+        @Override
+        public InputStream openStream() throws IOException {
+            InputStream stream = this.classLoader.getResourceAsStream(this.resourcePath);
+            if (stream == null)
+                throw new FileNotFoundException("Resource " + this.resourcePath + " not found.");
+
+            return Compression.decompress(this.resourcePath, stream);
+        }
+
+        @NotNull
+        @Override
+        public Charset charset() {
+            return this.charset;
+        }
+
+        @Override
+        public String toString() {
+            return "resource " + this.resourcePath;
+        }
+
+    }
+
+}
@@ -0,0 +1,318 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A migration that alters a large table without blocking writes to it for the
+ * duration of the change, in the style of pt-online-schema-change.
+ * <p>
+ * An empty shadow table is created with the new definition, and triggers on the
+ * original table keep the shadow table in sync with every write. Existing rows are
+ * then copied over in chunks of the table's numeric key, each in its own transaction,
+ * after which both tables are swapped with a single atomic {@code RENAME TABLE}.
+ * The copy position is saved in the {@link MigrationContext}, so an interrupted change
+ * continues copying where it left off.
+ * <p>
+ * The original table may not have triggers of its own, and may not be referenced by
+ * foreign keys, since those would keep pointing to the old table after the swap.
+ */
+public final class OnlineSchemaChangeMigration implements Migration {
+
+    private static final String COPY_PROGRESS_PREFIX = "copy:";
+    private static final String SWAPPED_PROGRESS = "swapped";
+
+    private final String id;
+    private final String table;
+    private final String keyColumn;
+    private final String alterSpecification;
+    private final int chunkSize;
+    private final double throttleRatio;
+    private final ProgressListener progressListener;
+
+    OnlineSchemaChangeMigration(@NotNull String id, @NotNull String table, @NotNull String keyColumn, @NotNull String alterSpecification) {
+        this(id, table, keyColumn, alterSpecification, 1_000, 0, null);
+    }
+
+    private OnlineSchemaChangeMigration(@NotNull String id, @NotNull String table, @NotNull String keyColumn, @NotNull String alterSpecification, int chunkSize, double throttleRatio, @Nullable ProgressListener progressListener) {
+        this.id = Objects.requireNonNull(id, "id may not be null");
+        this.table = Objects.requireNonNull(table, "table may not be null");
+        this.keyColumn = Objects.requireNonNull(keyColumn, "keyColumn may not be null");
+        this.alterSpecification = Objects.requireNonNull(alterSpecification, "alterSpecification may not be null");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        this.chunkSize = chunkSize;
+        if (throttleRatio < 0)
+            throw new IllegalArgumentException("throttleRatio may not be negative");
+        this.throttleRatio = throttleRatio;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Returns a copy of this change that copies rows in chunks of the specified
+     * size, in key range units. Defaults to 1000.
+     *
+     * @param chunkSize the size of every chunk
+     * @return the new change
+     */
+    @NotNull
+    public OnlineSchemaChangeMigration withChunkSize(int chunkSize) {
+        return new OnlineSchemaChangeMigration(this.id, this.table, this.keyColumn, this.alterSpecification, chunkSize, this.throttleRatio, this.progressListener);
+    }
+
+    /**
+     * Returns a copy of this change that sleeps after every chunk for the specified
+     * fraction of the time the chunk took. Defaults to 0, which never sleeps.
+     *
+     * @param throttleRatio the fraction of a chunk's duration to sleep after it
+     * @return the new change
+     */
+    @NotNull
+    public OnlineSchemaChangeMigration withThrottle(double throttleRatio) {
+        return new OnlineSchemaChangeMigration(this.id, this.table, this.keyColumn, this.alterSpecification, this.chunkSize, throttleRatio, this.progressListener);
+    }
+
+    /**
+     * Returns a copy of this change that reports its copy progress to the specified listener after every chunk.
+     * The remaining rows are estimated from the table statistics.
+     *
+     * @param progressListener the listener to report progress to
+     * @return the new change
+     */
+    @NotNull
+    public OnlineSchemaChangeMigration withProgressListener(@NotNull ProgressListener progressListener) {
+        Objects.requireNonNull(progressListener, "progressListener may not be null");
+        return new OnlineSchemaChangeMigration(this.id, this.table, this.keyColumn, this.alterSpecification, this.chunkSize, this.throttleRatio, progressListener);
+    }
+
+    @NotNull
+    @Override
+    public String id() {
+        return this.id;
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection) throws SQLException {
+        this.apply(connection, MigrationContext.transientContext());
+    }
+
+    @Override
+    public void apply(@NotNull Connection connection, @NotNull MigrationContext context) throws SQLException {
+        String progress = context.progress();
+
+        // RENAME TABLE commits implicitly, so if we were interrupted right after it,
+        // the shadow table is gone even though the progress wasn't updated yet. If the
+        // old table is missing too, the shadow table was dropped by someone else, so
+        // start over instead of dropping triggers on a table that was never swapped.
+        if (progress != null && progress.startsWith(COPY_PROGRESS_PREFIX) && !this.tableExists(connection, this.shadowTable()))
+            progress = this.tableExists(connection, this.oldTable()) ? SWAPPED_PROGRESS : null;
+
+        if (!SWAPPED_PROGRESS.equals(progress)) {
+            long next;
+            if (progress != null && progress.startsWith(COPY_PROGRESS_PREFIX)) {
+                next = Long.parseLong(progress.substring(COPY_PROGRESS_PREFIX.length()));
+            } else {
+                this.prepareShadowTable(connection);
+                next = Long.MIN_VALUE;
+                context.saveProgress(COPY_PROGRESS_PREFIX + next);
+            }
+
+            this.copyRows(connection, context, next);
+            this.execute(connection, "RENAME TABLE " + this.quoted(this.table) + " TO " + this.quoted(this.oldTable()) + ", " + this.quoted(this.shadowTable()) + " TO " + this.quoted(this.table));
+            context.saveProgress(SWAPPED_PROGRESS);
+        }
+
+        this.dropTriggers(connection);
+        this.execute(connection, "DROP TABLE IF EXISTS " + this.quoted(this.oldTable()));
+    }
+
+    private void prepareShadowTable(@NotNull Connection connection) throws SQLException {
+        // Clean up after an attempt that was interrupted before it saved any progress.
+        this.dropTriggers(connection);
+        this.execute(connection, "DROP TABLE IF EXISTS " + this.quoted(this.shadowTable()));
+
+        this.execute(connection, "CREATE TABLE " + this.quoted(this.shadowTable()) + " LIKE " + this.quoted(this.table));
+        this.execute(connection, "ALTER TABLE " + this.quoted(this.shadowTable()) + " " + this.alterSpecification);
+
+        List<String> columns = this.sharedColumns(connection);
+        String columnList = columns.stream().map(SqlStatements::quoteIdentifier).collect(Collectors.joining(", "));
+        String newValues = columns.stream().map((column) -> "NEW." + SqlStatements.quoteIdentifier(column)).collect(Collectors.joining(", "));
+        String shadow = this.quoted(this.shadowTable());
+        String key = this.quoted(this.keyColumn);
+        String replace = "REPLACE INTO " + shadow + " (" + columnList + ") VALUES (" + newValues + ")";
+
+        this.execute(connection, "CREATE TRIGGER " + this.quoted(this.trigger("ins")) + " AFTER INSERT ON " + this.quoted(this.table)
+            + " FOR EACH ROW " + replace);
+        this.execute(connection, "CREATE TRIGGER " + this.quoted(this.trigger("upd")) + " AFTER UPDATE ON " + this.quoted(this.table)
+            + " FOR EACH ROW BEGIN DELETE IGNORE FROM " + shadow + " WHERE NOT (OLD." + key + " <=> NEW." + key + ") AND " + key + " = OLD." + key + "; "
+            + replace + "; END");
+        this.execute(connection, "CREATE TRIGGER " + this.quoted(this.trigger("del")) + " AFTER DELETE ON " + this.quoted(this.table)
+            + " FOR EACH ROW DELETE IGNORE FROM " + shadow + " WHERE " + key + " = OLD." + key);
+    }
+
+    private void copyRows(@NotNull Connection connection, @NotNull MigrationContext context, long next) throws SQLException {
+        long[] bounds = Chunks.keyBounds(connection, this.table, this.keyColumn);
+        if (bounds == null)
+            return;
+
+        next = Math.max(next, bounds[0]);
+        long last = bounds[1];
+        long estimatedRows = this.estimateRows(connection);
+
+        String columnList = this.sharedColumns(connection).stream().map(SqlStatements::quoteIdentifier).collect(Collectors.joining(", "));
+        String key = this.quoted(this.keyColumn);
+        // Rows already written by the triggers are newer, so never overwrite them.
+        String copyQuery = "INSERT IGNORE INTO " + this.quoted(this.shadowTable()) + " (" + columnList + ") SELECT " + columnList
+            + " FROM " + this.quoted(this.table) + " WHERE " + key + " >= ? AND " + key + " %s ? LOCK IN SHARE MODE";
+
+        long copiedRows = 0;
+        long busyNanos = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement copy = connection.prepareStatement(String.format(copyQuery, "<"))) {
+            while (next <= last) {
+                long end = Chunks.end(next, this.chunkSize);
+
+                long start = System.nanoTime();
+                if (end == Long.MAX_VALUE && last == Long.MAX_VALUE) {
+                    // The exclusive end would skip the row with the largest possible key.
+                    try (PreparedStatement inclusiveCopy = connection.prepareStatement(String.format(copyQuery, "<="))) {
+                        copiedRows += copyChunk(inclusiveCopy, next, end);
+                    }
+                } else {
+                    copiedRows += copyChunk(copy, next, end);
+                }
+                context.saveProgress(COPY_PROGRESS_PREFIX + end);
+                connection.commit();
+                long elapsed = System.nanoTime() - start;
+                busyNanos += elapsed;
+                next = end;
+
+                if (this.progressListener != null) {
+                    long remaining = estimatedRows < 0 ? -1 : Math.max(0, estimatedRows - copiedRows);
+                    this.progressListener.progress(this.id, copiedRows, remaining, Chunks.rowsPerSecond(copiedRows, busyNanos));
+                }
+
+                // The end is clamped at Long.MAX_VALUE, so the next chunk wouldn't move past it.
+                if (end == Long.MAX_VALUE)
+                    break;
+
+                if (this.throttleRatio > 0 && next <= last)
+                    Chunks.sleep((long) (elapsed * this.throttleRatio));
+            }
+        } catch (SQLException | RuntimeException e) {
+            Chunks.rollbackQuietly(connection, e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static int copyChunk(@NotNull PreparedStatement copy, long start, long end) throws SQLException {
+        copy.setLong(1, start);
+        copy.setLong(2, end);
+        return copy.executeUpdate();
+    }
+
+    @NotNull
+    private List<String> sharedColumns(@NotNull Connection connection) throws SQLException {
+        List<String> originalColumns = columns(connection, this.table);
+        Set<String> shadowColumns = new HashSet<>();
+        for (String column : columns(connection, this.shadowTable())) {
+            shadowColumns.add(column.toLowerCase(Locale.ROOT));
+        }
+
+        List<String> shared = new ArrayList<>();
+        for (String column : originalColumns) {
+            if (shadowColumns.contains(column.toLowerCase(Locale.ROOT)))
+                shared.add(column);
+        }
+        return shared;
+    }
+
+    @NotNull
+    private static List<String> columns(@NotNull Connection connection, @NotNull String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT * FROM " + SqlStatements.quoteIdentifier(table) + " WHERE 1 = 0");
+            ResultSetMetaData metaData = resultSet.getMetaData();
+
+            List<String> columns = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnName(i));
+            }
+            return columns;
+        }
+    }
+
+    private boolean tableExists(@NotNull Connection connection, @NotNull String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT 1 FROM " + SqlStatements.quoteIdentifier(table) + " WHERE 1 = 0").close();
+            return true;
+        } catch (SQLException e) {
+            if (SqlStatements.isNoSuchTable(e))
+                return false;
+            throw e;
+        }
+    }
+
+    private long estimateRows(@NotNull Connection connection) throws SQLException {
+        String query = "SELECT `TABLE_ROWS` FROM `information_schema`.`tables` WHERE `table_schema` = DATABASE() AND `table_name` = ?";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, this.table);
+
+            ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next())
+                return -1;
+
+            long rows = resultSet.getLong(1);
+            return resultSet.wasNull() ? -1 : rows;
+        }
+    }
+
+    private void dropTriggers(@NotNull Connection connection) throws SQLException {
+        for (String suffix : List.of("ins", "upd", "del")) {
+            this.execute(connection, "DROP TRIGGER IF EXISTS " + this.quoted(this.trigger(suffix)));
+        }
+    }
+
+    private void execute(@NotNull Connection connection, @NotNull String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    @NotNull
+    private String shadowTable() {
+        return "_" + this.table + "_new";
+    }
+
+    @NotNull
+    private String oldTable() {
+        return "_" + this.table + "_old";
+    }
+
+    @NotNull
+    private String trigger(@NotNull String suffix) {
+        return "_" + this.table + "_osc_" + suffix;
+    }
+
+    @NotNull
+    private String quoted(@NotNull String identifier) {
+        return SqlStatements.quoteIdentifier(identifier);
+    }
+
+}
@@ -0,0 +1,24 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+@ApiStatus.Internal
+final class ProfiledMigration extends ForwardingMigration {
+
+    private final SessionProfile sessionProfile;
+
+    ProfiledMigration(@NotNull Migration delegate, @NotNull SessionProfile sessionProfile) {
+        super(delegate);
+        this.sessionProfile = Objects.requireNonNull(sessionProfile, "sessionProfile may not be null");
+    }
+
+    @NotNull
+    @Override
+    public SessionProfile sessionProfile() {
+        return this.sessionProfile;
+    }
+
+}
@@ -0,0 +1,21 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives progress updates from long-running migrations that process rows in chunks.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Called after a chunk of rows was processed.
+     *
+     * @param migrationId   the id of the migration that made progress
+     * @param processedRows the total amount of rows processed so far
+     * @param remainingRows the estimated amount of rows left to process, or -1 if unknown
+     * @param rowsPerSecond the average amount of rows processed per second so far
+     */
+    void progress(@NotNull String migrationId, long processedRows, long remainingRows, double rowsPerSecond);
+
+}
@@ -0,0 +1,128 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Lists the files directly inside a resource folder, regardless of whether
+ * the folder is an exploded directory or packaged inside a jar.
+ */
+@ApiStatus.Internal
+final class ResourceScanner {
+
+    private ResourceScanner() {
+    }
+
+    /**
+     * Lists the names of all files directly inside the specified resource folder, sorted by name.
+     * Only the first classpath entry that contains the folder is scanned, since that's
+     * the entry resources from the folder are loaded from.
+     *
+     * @param classLoader the classloader to scan
+     * @param folderPath  the path to the folder to scan
+     * @return the sorted names of all files in the folder, or an empty list if the folder doesn't exist
+     * @throws IOException if an error occurs while listing the folder
+     */
+    @NotNull
+    static List<String> list(@NotNull ClassLoader classLoader, @NotNull String folderPath) throws IOException {
+        String folder = trimSlashes(folderPath);
+        SortedSet<String> names = new TreeSet<>();
+
+        URL url = classLoader.getResource(folder);
+        if (url == null)
+            return List.of();
+
+        if (url.getProtocol().equals("file")) {
+            listDirectory(url, names);
+        } else {
+            URLConnection connection = url.openConnection();
+            if (connection instanceof JarURLConnection jarConnection) {
+                listJar(jarConnection, folder, names);
+            } else {
+                // Unknown protocol, fall back to the directory listing some classloaders provide.
+                listFromStream(connection, names);
+            }
+        }
+
+        return List.copyOf(names);
+    }
+
+    private static void listDirectory(@NotNull URL url, @NotNull SortedSet<String> names) throws IOException {
+        Path directory;
+        try {
+            directory = Path.of(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid resource folder URL " + url, e);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile).forEach((file) -> names.add(file.getFileName().toString()));
+        }
+    }
+
+    private static void listJar(@NotNull JarURLConnection connection, @NotNull String folder, @NotNull SortedSet<String> names) throws IOException {
+        String prefix = folder.isEmpty() ? "" : folder + "/";
+
+        // Don't use the shared cached jar file, since we close it afterwards.
+        connection.setUseCaches(false);
+        try (JarFile jar = connection.getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.startsWith(prefix))
+                    continue;
+
+                String fileName = name.substring(prefix.length());
+                if (!fileName.isEmpty() && fileName.indexOf('/') == -1)
+                    names.add(fileName);
+            }
+        }
+    }
+
+    private static void listFromStream(@NotNull URLConnection connection, @NotNull SortedSet<String> names) throws IOException {
+        try (
+            InputStream in = connection.getInputStream();
+            BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+        ) {
+            String resource;
+            while ((resource = br.readLine()) != null) {
+                if (!resource.isBlank())
+                    names.add(resource);
+            }
+        }
+    }
+
+    @NotNull
+    private static String trimSlashes(@NotNull String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+}
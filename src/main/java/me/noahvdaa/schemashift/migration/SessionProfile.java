@@ -0,0 +1,113 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * A set of session variables that SchemaShift sets on the connection while a migration is
+ * applied. The previous values are restored afterwards, also when the migration fails,
+ * so settings never leak into a pooled connection.
+ * <p>
+ * Profiles are immutable, {@link #with(String, Object)} returns a new profile:
+ * <pre>{@code
+ * SessionProfile.BULK_LOAD.with("sql_log_bin", 0)
+ * }</pre>
+ */
+public final class SessionProfile {
+
+    private final static Pattern VARIABLE_NAME = Pattern.compile("[A-Za-z0-9_]+");
+
+    /**
+     * A profile that leaves the session as it is. This is the default for all migrations.
+     */
+    public static final SessionProfile NONE = new SessionProfile(Map.of());
+
+    /**
+     * A profile for loading large amounts of data, which skips foreign key and unique
+     * checks. Only use this for data that is known to satisfy the table's constraints.
+     */
+    public static final SessionProfile BULK_LOAD = NONE
+        .with("foreign_key_checks", 0)
+        .with("unique_checks", 0);
+
+    /**
+     * A profile for schema changes on tables that are in use, which gives up quickly
+     * when waiting for locks instead of blocking the queries queued behind the migration.
+     */
+    public static final SessionProfile ONLINE_SAFE = NONE
+        .with("lock_wait_timeout", 5)
+        .with("innodb_lock_wait_timeout", 5);
+
+    private final Map<String, Object> variables;
+
+    private SessionProfile(@NotNull Map<String, Object> variables) {
+        this.variables = Collections.unmodifiableMap(variables);
+    }
+
+    /**
+     * Returns a profile with the settings of this profile, that also
+     * sets the specified session variable to the specified value.
+     *
+     * @param variable the name of the session variable, such as {@code foreign_key_checks}
+     * @param value    the value to set, either a number, a boolean or a string
+     * @return the new profile
+     */
+    @NotNull
+    public SessionProfile with(@NotNull String variable, @NotNull Object value) {
+        Objects.requireNonNull(variable, "variable may not be null");
+        Objects.requireNonNull(value, "value may not be null");
+        if (!VARIABLE_NAME.matcher(variable).matches())
+            throw new IllegalArgumentException("Invalid session variable name " + variable);
+        if (!(value instanceof Number || value instanceof Boolean || value instanceof String))
+            throw new IllegalArgumentException("The value of " + variable + " must be a number, a boolean or a string");
+
+        Map<String, Object> variables = new LinkedHashMap<>(this.variables);
+        variables.put(variable.toLowerCase(Locale.ROOT), value);
+        return new SessionProfile(variables);
+    }
+
+    /**
+     * Returns the session variables this profile sets, in the order they were added.
+     *
+     * @return the session variables and their values
+     */
+    @NotNull
+    public Map<String, Object> variables() {
+        return this.variables;
+    }
+
+    /**
+     * Returns whether this profile doesn't change any session variables.
+     *
+     * @return whether this profile is empty
+     */
+    public boolean isEmpty() {
+        return this.variables.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof SessionProfile other))
+            return false;
+        return this.variables.equals(other.variables);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.variables.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SessionProfile" + this.variables;
+    }
+
+}
@@ -0,0 +1,360 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Splits a MySQL/MariaDB script into individual statements while reading it,
+ * so a script never has to be held in memory as a whole.
+ * <p>
+ * The reader understands quoted strings and identifiers, {@code --}, {@code #} and
+ * {@code /* *}{@code /} comments, the client-side {@code DELIMITER} command and
+ * {@code BEGIN ... END} blocks in stored programs, so a stored procedure body is
+ * returned as a single statement even without changing the delimiter.
+ * Regular comments are stripped, while executable comments ({@code /*! ... *}{@code /})
+ * and optimizer hints ({@code /*+ ... *}{@code /}) are kept.
+ */
+public final class SqlScriptReader implements Closeable {
+
+    private static final String DEFAULT_DELIMITER = ";";
+    private static final int MAX_DELIMITER_LENGTH = 32;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+
+    private String delimiter = DEFAULT_DELIMITER;
+    private int line = 1;
+    private int statementLine = 0;
+    private int statementCount = 0;
+
+    /**
+     * Creates a new script reader that reads from the specified reader.
+     *
+     * @param reader the reader to read the script from
+     */
+    public SqlScriptReader(@NotNull Reader reader) {
+        this.reader = Objects.requireNonNull(reader, "reader may not be null");
+    }
+
+    /**
+     * Creates a new script reader that reads from the specified script.
+     *
+     * @param script the script to read
+     */
+    public SqlScriptReader(@NotNull String script) {
+        this(new StringReader(Objects.requireNonNull(script, "script may not be null")));
+    }
+
+    /**
+     * Reads the next statement from the script, without its delimiter.
+     *
+     * @return the next statement, or null if the end of the script was reached
+     * @throws IOException if an error occurs while reading the script
+     */
+    @Nullable
+    public String next() throws IOException {
+        StringBuilder statement = new StringBuilder();
+        BlockTracker blocks = new BlockTracker();
+
+        int c;
+        while ((c = this.peek(0)) != -1) {
+            if (statement.isEmpty()) {
+                if (Character.isWhitespace(c)) {
+                    this.read();
+                    continue;
+                }
+                if ((c == 'd' || c == 'D') && this.readDelimiterCommand())
+                    continue;
+                this.statementLine = this.line;
+            }
+
+            if (this.atDelimiter() && !blocks.insideBlock()) {
+                this.skip(this.delimiter.length());
+                if (statement.isEmpty())
+                    continue;
+
+                return this.finish(statement);
+            }
+
+            if (c == '\'' || c == '"' || c == '`') {
+                this.readQuoted(statement);
+                blocks.symbol();
+            } else if (c == '#' || (c == '-' && this.peek(1) == '-' && isCommentStart(this.peek(2)))) {
+                this.skipLineComment(statement);
+            } else if (c == '/' && this.peek(1) == '*') {
+                this.readBlockComment(statement);
+            } else if (isWordChar(c)) {
+                blocks.word(this.readWord(statement));
+            } else {
+                statement.append((char) this.read());
+                if (!Character.isWhitespace(c))
+                    blocks.symbol();
+            }
+        }
+
+        if (statement.toString().isBlank())
+            return null;
+
+        return this.finish(statement);
+    }
+
+    /**
+     * Returns the line number the last statement returned by {@link #next()} started on.
+     *
+     * @return the line number of the last statement, starting at 1
+     */
+    public int lineNumber() {
+        return this.statementLine;
+    }
+
+    /**
+     * Returns the amount of statements returned by {@link #next()} so far.
+     *
+     * @return the amount of statements read
+     */
+    public int statementCount() {
+        return this.statementCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    @NotNull
+    private String finish(@NotNull StringBuilder statement) {
+        this.statementCount++;
+        return statement.toString().strip();
+    }
+
+    private boolean readDelimiterCommand() throws IOException {
+        String command = "DELIMITER";
+        for (int i = 0; i < command.length(); i++) {
+            if (Character.toUpperCase(this.peek(i)) != command.charAt(i))
+                return false;
+        }
+        int separator = this.peek(command.length());
+        if (separator != ' ' && separator != '\t')
+            return false;
+
+        this.skip(command.length());
+        StringBuilder delimiter = new StringBuilder();
+        int c;
+        while ((c = this.peek(0)) != -1 && c != '\n') {
+            delimiter.append((char) this.read());
+        }
+
+        String newDelimiter = delimiter.toString().strip();
+        if (newDelimiter.isEmpty())
+            throw new IOException("DELIMITER without a delimiter on line " + this.line);
+        if (newDelimiter.length() > MAX_DELIMITER_LENGTH)
+            throw new IOException("Delimiter on line " + this.line + " is longer than " + MAX_DELIMITER_LENGTH + " characters");
+
+        this.delimiter = newDelimiter;
+        return true;
+    }
+
+    private boolean atDelimiter() throws IOException {
+        for (int i = 0; i < this.delimiter.length(); i++) {
+            if (this.peek(i) != this.delimiter.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private void readQuoted(@NotNull StringBuilder statement) throws IOException {
+        int quote = this.read();
+        statement.append((char) quote);
+
+        int c;
+        while ((c = this.read()) != -1) {
+            statement.append((char) c);
+            if (c == '\\' && quote != '`') {
+                int escaped = this.read();
+                if (escaped != -1)
+                    statement.append((char) escaped);
+            } else if (c == quote) {
+                // A doubled quote is simply read as the start of a new quoted section.
+                return;
+            }
+        }
+    }
+
+    private void skipLineComment(@NotNull StringBuilder statement) throws IOException {
+        int c;
+        while ((c = this.peek(0)) != -1 && c != '\n') {
+            this.read();
+        }
+        separate(statement);
+    }
+
+    private void readBlockComment(@NotNull StringBuilder statement) throws IOException {
+        int kind = this.peek(2);
+        boolean keep = kind == '!' || kind == '+';
+        if (keep) {
+            statement.append((char) this.read()).append((char) this.read());
+        } else {
+            this.skip(2);
+        }
+
+        int c;
+        while ((c = this.read()) != -1) {
+            if (keep)
+                statement.append((char) c);
+            if (c == '*' && this.peek(0) == '/') {
+                this.read();
+                if (keep)
+                    statement.append('/');
+                break;
+            }
+        }
+
+        if (!keep)
+            separate(statement);
+    }
+
+    @NotNull
+    private String readWord(@NotNull StringBuilder statement) throws IOException {
+        int start = statement.length();
+        while (isWordChar(this.peek(0))) {
+            statement.append((char) this.read());
+        }
+        return statement.substring(start);
+    }
+
+    private int peek(int offset) throws IOException {
+        if (this.position + offset >= this.limit && !this.endOfInput) {
+            if (this.position > 0) {
+                System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+                this.limit -= this.position;
+                this.position = 0;
+            }
+            while (this.limit <= offset && !this.endOfInput) {
+                int read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+                if (read == -1) {
+                    this.endOfInput = true;
+                } else {
+                    this.limit += read;
+                }
+            }
+        }
+        return this.position + offset < this.limit ? this.buffer[this.position + offset] : -1;
+    }
+
+    private int read() throws IOException {
+        int c = this.peek(0);
+        if (c != -1) {
+            this.position++;
+            if (c == '\n')
+                this.line++;
+        }
+        return c;
+    }
+
+    private void skip(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            this.read();
+        }
+    }
+
+    private static void separate(@NotNull StringBuilder statement) {
+        if (!statement.isEmpty() && !Character.isWhitespace(statement.charAt(statement.length() - 1)))
+            statement.append(' ');
+    }
+
+    private static boolean isWordChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isCommentStart(int c) {
+        // MySQL requires whitespace or a control character after "--".
+        return c == -1 || c <= ' ';
+    }
+
+    /**
+     * Keeps track of BEGIN ... END blocks inside stored programs, so delimiters
+     * inside a procedure, function, trigger or event body don't end the statement.
+     */
+    private static final class BlockTracker {
+
+        private String firstWord = null;
+        private Boolean storedProgram = null;
+        private int depth = 0;
+        private boolean pendingEnd = false;
+
+        void word(@NotNull String word) {
+            String keyword = word.toUpperCase(Locale.ROOT);
+            if (this.firstWord == null) {
+                this.firstWord = keyword;
+                if (!keyword.equals("CREATE") && !keyword.equals("BEGIN"))
+                    this.storedProgram = false;
+                return;
+            }
+
+            if (this.storedProgram == null) {
+                if (this.firstWord.equals("BEGIN")) {
+                    // MariaDB's anonymous "BEGIN NOT ATOMIC ... END" block.
+                    this.storedProgram = keyword.equals("NOT");
+                    this.depth = this.storedProgram ? 1 : 0;
+                    return;
+                }
+
+                switch (keyword) {
+                    case "PROCEDURE", "FUNCTION", "TRIGGER", "EVENT" -> this.storedProgram = true;
+                    case "TABLE", "VIEW", "INDEX", "UNIQUE", "FULLTEXT", "SPATIAL", "DATABASE", "SCHEMA", "USER", "ROLE", "SEQUENCE", "SERVER", "TABLESPACE" -> this.storedProgram = false;
+                    default -> {
+                    }
+                }
+                return;
+            }
+
+            if (!this.storedProgram)
+                return;
+
+            if (this.pendingEnd) {
+                this.pendingEnd = false;
+                switch (keyword) {
+                    case "IF", "LOOP", "WHILE", "REPEAT", "FOR":
+                        return;
+                    case "CASE":
+                        this.depth--;
+                        return;
+                    default:
+                        this.depth--;
+                }
+            }
+
+            switch (keyword) {
+                case "BEGIN", "CASE" -> this.depth++;
+                case "END" -> this.pendingEnd = true;
+                default -> {
+                }
+            }
+        }
+
+        void symbol() {
+            if (this.pendingEnd) {
+                this.pendingEnd = false;
+                this.depth--;
+            }
+        }
+
+        boolean insideBlock() {
+            this.symbol();
+            return this.depth > 0;
+        }
+
+    }
+
+}
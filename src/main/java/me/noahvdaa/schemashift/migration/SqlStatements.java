@@ -0,0 +1,94 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Utilities for classifying single SQL statements, as returned by {@link SqlScriptReader},
+ * and the errors they cause.
+ */
+public final class SqlStatements {
+
+    private static final String NO_SUCH_TABLE_SQL_STATE = "42S02";
+    private static final int NO_SUCH_TABLE_ERROR_CODE = 1146;
+    private static final Set<String> DML_KEYWORDS = Set.of("INSERT", "UPDATE", "DELETE", "REPLACE");
+
+    private SqlStatements() {
+    }
+
+    /**
+     * Returns the first keyword of the specified statement in upper case,
+     * skipping leading whitespace, parentheses and comments.
+     *
+     * @param statement the statement to get the first keyword of
+     * @return the first keyword, or null if the statement doesn't start with a keyword
+     */
+    @Nullable
+    public static String firstKeyword(@NotNull String statement) {
+        Objects.requireNonNull(statement, "statement may not be null");
+
+        int i = 0;
+        int length = statement.length();
+        while (i < length) {
+            char c = statement.charAt(i);
+            if (Character.isWhitespace(c) || c == '(') {
+                i++;
+            } else if (c == '/' && i + 1 < length && statement.charAt(i + 1) == '*') {
+                int end = statement.indexOf("*/", i + 2);
+                if (end == -1)
+                    return null;
+                i = end + 2;
+            } else {
+                break;
+            }
+        }
+
+        int start = i;
+        while (i < length && Character.isLetter(statement.charAt(i))) {
+            i++;
+        }
+        return start == i ? null : statement.substring(start, i).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Quotes the specified identifier, such as a table or column name, with backticks.
+     *
+     * @param identifier the identifier to quote
+     * @return the quoted identifier
+     */
+    @NotNull
+    public static String quoteIdentifier(@NotNull String identifier) {
+        Objects.requireNonNull(identifier, "identifier may not be null");
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    /**
+     * Returns whether the specified statement is a data manipulation statement
+     * ({@code INSERT}, {@code UPDATE}, {@code DELETE} or {@code REPLACE}).
+     *
+     * @param statement the statement to check
+     * @return whether the statement is a data manipulation statement
+     */
+    public static boolean isDml(@NotNull String statement) {
+        String keyword = firstKeyword(statement);
+        return keyword != null && DML_KEYWORDS.contains(keyword);
+    }
+
+    /**
+     * Returns whether the specified exception was caused by a table that doesn't exist.
+     * Not every driver reports MySQL's error code with the standard SQL state, so both are checked.
+     *
+     * @param exception the exception to check
+     * @return whether the exception was caused by a missing table
+     */
+    public static boolean isNoSuchTable(@NotNull SQLException exception) {
+        Objects.requireNonNull(exception, "exception may not be null");
+        return NO_SUCH_TABLE_SQL_STATE.equals(exception.getSQLState()) || exception.getErrorCode() == NO_SUCH_TABLE_ERROR_CODE;
+    }
+
+}
@@ -0,0 +1,28 @@
+package me.noahvdaa.schemashift.migration;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jetbrains.annotations.ApiStatus;
+
+@ApiStatus.Internal
+@Name("me.noahvdaa.schemashift.Statement")
+@Label("Migration Statement")
+@Category("SchemaShift")
+@Description("A single statement or batch executed by a migration")
+final class StatementEvent extends Event {
+
+    static final int MAX_STATEMENT_LENGTH = 4096;
+
+    @Label("Migration Id")
+    String migrationId;
+
+    @Label("Statement")
+    String statement;
+
+    @Label("Rows Affected")
+    long rowsAffected;
+
+}
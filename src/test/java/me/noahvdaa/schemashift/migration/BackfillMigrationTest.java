@@ -0,0 +1,75 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackfillMigrationTest {
+
+    private H2StandIn database;
+    private Connection connection;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        this.database = new H2StandIn();
+        this.connection = this.database.connect();
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("CREATE TABLE `users` (`id` BIGINT NOT NULL PRIMARY KEY, `name` VARCHAR(64) NOT NULL, `name_lower` VARCHAR(64) NULL)");
+        }
+    }
+
+    @AfterEach
+    void dropDatabase() throws SQLException {
+        this.connection.close();
+        this.database.close();
+    }
+
+    @Test
+    void updatesEveryChunk() throws SQLException {
+        this.insert(1, 2, 3, 500, 1_000);
+
+        backfill("UPDATE `users` SET `name_lower` = LOWER(`name`) WHERE `id` >= ? AND `id` < ?").apply(this.connection);
+
+        assertEquals(0, this.database.count("SELECT COUNT(*) FROM `users` WHERE `name_lower` IS NULL"));
+    }
+
+    @Test
+    void updatesTheLargestPossibleKey() throws SQLException {
+        this.insert(Long.MAX_VALUE - 250, Long.MAX_VALUE - 1, Long.MAX_VALUE);
+
+        backfill("UPDATE `users` SET `name_lower` = LOWER(`name`) WHERE `id` >= ? AND `id`<? AND `id` <> 0").apply(this.connection);
+
+        assertEquals(0, this.database.count("SELECT COUNT(*) FROM `users` WHERE `name_lower` IS NULL"));
+    }
+
+    @Test
+    void rejectsLargestPossibleKeyWithoutExclusiveBound() throws SQLException {
+        this.insert(Long.MAX_VALUE);
+
+        BackfillMigration migration = backfill("UPDATE `users` SET `name_lower` = LOWER(`name`) WHERE `id` BETWEEN ? AND ?");
+        assertThrows(SQLException.class, () -> migration.apply(this.connection));
+    }
+
+    private static BackfillMigration backfill(String updateQuery) {
+        return Migration.backfill("lower_names", "users", "id", updateQuery).withChunkSize(100, 100, 100);
+    }
+
+    private void insert(long... ids) throws SQLException {
+        try (PreparedStatement insert = this.connection.prepareStatement("INSERT INTO `users` (`id`, `name`) VALUES (?, ?)")) {
+            for (long id : ids) {
+                insert.setLong(1, id);
+                insert.setString(2, "User" + id);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.h2.api.Trigger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * An in-memory H2 database in MySQL mode, standing in for MariaDB in tests.
+ * <p>
+ * H2 doesn't support every MySQL statement the migrations use, so connections handed out by
+ * {@link #connect()} translate the few that differ: {@code CREATE TABLE ... LIKE}, multi-table
+ * {@code RENAME TABLE}, {@code LOCK IN SHARE MODE}, {@code TABLE_ROWS} and triggers with SQL
+ * bodies, which are replaced by {@link ShadowTrigger}, which keeps an online schema change's
+ * shadow table in sync the same way.
+ */
+final class H2StandIn implements AutoCloseable {
+
+    private static final Pattern CREATE_LIKE = Pattern.compile("CREATE TABLE (`[^`]+`) LIKE (`[^`]+`)");
+    private static final Pattern RENAME = Pattern.compile("RENAME TABLE (.+)");
+    private static final Pattern RENAME_PAIR = Pattern.compile("\\s*(`[^`]+`) TO (`[^`]+`)\\s*");
+    private static final Pattern CREATE_TRIGGER = Pattern.compile("CREATE TRIGGER (`[^`]+`) AFTER (INSERT|UPDATE|DELETE) ON (`[^`]+`) FOR EACH ROW .*", Pattern.DOTALL);
+
+    private final String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private final Connection keepAlive;
+    private String failOnce = null;
+
+    H2StandIn() throws SQLException {
+        this.keepAlive = DriverManager.getConnection(this.url);
+    }
+
+    /**
+     * Opens a connection that doesn't translate any statements.
+     */
+    Connection connectDirectly() throws SQLException {
+        return DriverManager.getConnection(this.url);
+    }
+
+    /**
+     * Opens a connection that translates MySQL statements to H2.
+     */
+    Connection connect() throws SQLException {
+        Connection connection = this.connectDirectly();
+        return proxy(Connection.class, connection, (method, args) -> {
+            if (method.getName().equals("createStatement") && method.getParameterCount() == 0) {
+                Statement statement = connection.createStatement();
+                return proxy(Statement.class, statement, (statementMethod, statementArgs) -> {
+                    if (statementMethod.getName().startsWith("execute") && statementArgs != null && statementArgs.length == 1 && statementArgs[0] instanceof String sql) {
+                        List<String> translated = this.translate(connection, sql);
+                        for (int i = 0; i < translated.size() - 1; i++) {
+                            statement.execute(translated.get(i));
+                        }
+                        return statementMethod.invoke(statement, translated.get(translated.size() - 1));
+                    }
+                    return statementMethod.invoke(statement, statementArgs);
+                });
+            }
+            if (method.getName().equals("prepareStatement") && method.getParameterCount() == 1) {
+                List<String> translated = this.translate(connection, (String) args[0]);
+                return connection.prepareStatement(translated.get(translated.size() - 1));
+            }
+            return method.invoke(connection, args);
+        });
+    }
+
+    /**
+     * Makes the next statement that starts with the specified prefix fail, before it's executed.
+     */
+    void failOnce(String prefix) {
+        this.failOnce = Objects.requireNonNull(prefix, "prefix may not be null");
+    }
+
+    long count(String query) throws SQLException {
+        try (Statement statement = this.keepAlive.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(query);
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    boolean tableExists(String table) throws SQLException {
+        return this.count("SELECT COUNT(*) FROM `information_schema`.`tables` WHERE `table_schema` = SCHEMA() AND `table_name` = '" + table + "'") > 0;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement statement = this.keepAlive.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        this.keepAlive.close();
+    }
+
+    private List<String> translate(Connection connection, String sql) throws SQLException {
+        if (this.failOnce != null && sql.startsWith(this.failOnce)) {
+            this.failOnce = null;
+            throw new SQLException("Injected failure: " + sql);
+        }
+
+        Matcher createLike = CREATE_LIKE.matcher(sql);
+        if (createLike.matches()) {
+            String table = createLike.group(1);
+            String source = createLike.group(2);
+            List<String> statements = new ArrayList<>();
+            statements.add("CREATE TABLE " + table + " AS SELECT * FROM " + source + " WITH NO DATA");
+            for (String column : query(connection, "SELECT `column_name` FROM `information_schema`.`columns` WHERE `table_schema` = SCHEMA() AND `table_name` = '" + unquote(source) + "' AND `is_nullable` = 'NO'")) {
+                statements.add("ALTER TABLE " + table + " ALTER COLUMN " + SqlStatements.quoteIdentifier(column) + " SET NOT NULL");
+            }
+            List<String> primaryKey = primaryKey(connection, unquote(source));
+            if (!primaryKey.isEmpty())
+                statements.add("ALTER TABLE " + table + " ADD PRIMARY KEY (" + primaryKey.stream().map(SqlStatements::quoteIdentifier).collect(Collectors.joining(", ")) + ")");
+            return statements;
+        }
+
+        Matcher rename = RENAME.matcher(sql);
+        if (rename.matches()) {
+            List<String> statements = new ArrayList<>();
+            for (String pair : rename.group(1).split(",")) {
+                Matcher names = RENAME_PAIR.matcher(pair);
+                if (!names.matches())
+                    throw new IllegalArgumentException("Unsupported RENAME TABLE: " + sql);
+                statements.add("ALTER TABLE " + names.group(1) + " RENAME TO " + names.group(2));
+            }
+            return statements;
+        }
+
+        Matcher trigger = CREATE_TRIGGER.matcher(sql);
+        if (trigger.matches())
+            return List.of("CREATE TRIGGER " + trigger.group(1) + " AFTER " + trigger.group(2) + " ON " + trigger.group(3) + " FOR EACH ROW CALL \"" + ShadowTrigger.class.getName() + "\"");
+
+        return List.of(sql
+            .replace(" LOCK IN SHARE MODE", "")
+            .replace("`TABLE_ROWS`", "`ROW_COUNT_ESTIMATE`")
+            .replace("DATABASE()", "SCHEMA()"));
+    }
+
+    private static List<String> primaryKey(Connection connection, String table) throws SQLException {
+        return query(connection, """
+            SELECT kcu.`column_name` FROM `information_schema`.`table_constraints` tc
+            JOIN `information_schema`.`key_column_usage` kcu ON tc.`constraint_schema` = kcu.`constraint_schema` AND tc.`constraint_name` = kcu.`constraint_name`
+            WHERE tc.`constraint_type` = 'PRIMARY KEY' AND tc.`table_schema` = SCHEMA() AND tc.`table_name` = '%s'
+            ORDER BY kcu.`ordinal_position`
+            """.formatted(table));
+    }
+
+    private static List<String> query(Connection connection, String query) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(query);
+            List<String> values = new ArrayList<>();
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+            return values;
+        }
+    }
+
+    private static String unquote(String identifier) {
+        return identifier.substring(1, identifier.length() - 1).replace("``", "`");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T delegate, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            try {
+                return handler.invoke(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(H2StandIn.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        Object invoke(Method method, Object[] args) throws Throwable;
+
+    }
+
+    /**
+     * Does what the triggers of {@link OnlineSchemaChangeMigration} do on MySQL: writes to the
+     * original table are replayed on the shadow table, for the columns both tables share.
+     */
+    public static final class ShadowTrigger implements Trigger {
+
+        private String shadowTable;
+        private int keyIndex;
+        private final List<Integer> sharedIndices = new ArrayList<>();
+        private final List<String> sharedColumns = new ArrayList<>();
+        private String keyColumn;
+        private int type;
+
+        public ShadowTrigger() {
+        }
+
+        @Override
+        public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+            this.type = type;
+            this.shadowTable = "_" + tableName + "_new";
+            this.keyColumn = primaryKey(connection, tableName).get(0);
+
+            List<String> shadowColumns = query(connection, "SELECT `column_name` FROM `information_schema`.`columns` WHERE `table_schema` = SCHEMA() AND `table_name` = '" + this.shadowTable + "'");
+            List<String> columns = query(connection, "SELECT `column_name` FROM `information_schema`.`columns` WHERE `table_schema` = SCHEMA() AND `table_name` = '" + tableName + "' ORDER BY `ordinal_position`");
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).equals(this.keyColumn))
+                    this.keyIndex = i;
+                if (shadowColumns.contains(columns.get(i))) {
+                    this.sharedIndices.add(i);
+                    this.sharedColumns.add(columns.get(i));
+                }
+            }
+        }
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+            String shadow = SqlStatements.quoteIdentifier(this.shadowTable);
+            String key = SqlStatements.quoteIdentifier(this.keyColumn);
+            if (this.type == DELETE || (this.type == UPDATE && !Objects.equals(oldRow[this.keyIndex], newRow[this.keyIndex]))) {
+                try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + shadow + " WHERE " + key + " = ?")) {
+                    delete.setObject(1, oldRow[this.keyIndex]);
+                    delete.executeUpdate();
+                }
+            }
+            if (this.type == DELETE)
+                return;
+
+            String columns = this.sharedColumns.stream().map(SqlStatements::quoteIdentifier).collect(Collectors.joining(", "));
+            String placeholders = this.sharedColumns.stream().map((column) -> "?").collect(Collectors.joining(", "));
+            try (PreparedStatement replace = connection.prepareStatement("MERGE INTO " + shadow + " (" + columns + ") KEY (" + key + ") VALUES (" + placeholders + ")")) {
+                for (int i = 0; i < this.sharedIndices.size(); i++) {
+                    replace.setObject(i + 1, newRow[this.sharedIndices.get(i)]);
+                }
+                replace.executeUpdate();
+            }
+        }
+
+    }
+
+}
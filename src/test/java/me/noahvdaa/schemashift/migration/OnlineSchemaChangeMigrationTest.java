@@ -0,0 +1,242 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OnlineSchemaChangeMigrationTest {
+
+    private static final int ROWS = 25;
+
+    private H2StandIn database;
+    private Connection connection;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        this.database = new H2StandIn();
+        this.connection = this.database.connect();
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("CREATE TABLE `users` (`id` BIGINT NOT NULL PRIMARY KEY, `name` VARCHAR(64) NOT NULL)");
+        }
+        try (PreparedStatement insert = this.connection.prepareStatement("INSERT INTO `users` (`id`, `name`) VALUES (?, ?)")) {
+            for (int id = 1; id <= ROWS; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "user" + id);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    @AfterEach
+    void dropDatabase() throws SQLException {
+        this.connection.close();
+        this.database.close();
+    }
+
+    @Test
+    void copiesRowsAndSwapsTables() throws SQLException {
+        List<Long> processed = new ArrayList<>();
+        OnlineSchemaChangeMigration migration = change()
+            .withProgressListener((id, processedRows, remainingRows, rowsPerSecond) -> processed.add(processedRows));
+        MigrationContext context = MigrationContext.transientContext();
+
+        migration.apply(this.connection, context);
+
+        assertEquals("swapped", context.progress());
+        assertEquals(List.of(10L, 20L, 25L), processed);
+        assertMigrated(expectedRows());
+    }
+
+    @Test
+    void triggersSyncWritesDuringTheCopy() throws SQLException {
+        Map<Long, String> expected = expectedRows();
+        boolean[] written = {false};
+        OnlineSchemaChangeMigration migration = change().withProgressListener((id, processedRows, remainingRows, rowsPerSecond) -> {
+            if (written[0])
+                return;
+            written[0] = true;
+
+            // Write from another connection while the first chunk is copied but the others aren't.
+            try (Connection other = this.database.connectDirectly(); Statement statement = other.createStatement()) {
+                statement.executeUpdate("INSERT INTO `users` (`id`, `name`) VALUES (100, 'inserted')");
+                statement.executeUpdate("UPDATE `users` SET `name` = 'updated' WHERE `id` = 2");
+                statement.executeUpdate("UPDATE `users` SET `name` = 'updated before copy' WHERE `id` = 15");
+                statement.executeUpdate("DELETE FROM `users` WHERE `id` = 3");
+                statement.executeUpdate("UPDATE `users` SET `id` = 200 WHERE `id` = 4");
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        migration.apply(this.connection, MigrationContext.transientContext());
+
+        assertTrue(written[0]);
+        expected.put(100L, "inserted");
+        expected.put(2L, "updated");
+        expected.put(15L, "updated before copy");
+        expected.remove(3L);
+        expected.put(200L, expected.remove(4L));
+        assertMigrated(expected);
+    }
+
+    @Test
+    void restartsWhenInterruptedWhilePreparing() throws SQLException {
+        this.database.failOnce("CREATE TRIGGER `_users_osc_del`");
+        FailingContext context = new FailingContext(null);
+
+        assertThrows(SQLException.class, () -> change().apply(this.connection, context));
+        assertEquals(null, context.progress());
+
+        change().apply(this.connection, context);
+        assertMigrated(expectedRows());
+    }
+
+    @Test
+    void resumesCopyAfterPreparing() throws SQLException {
+        FailingContext context = new FailingContext("copy:11");
+
+        assertThrows(SQLException.class, () -> change().apply(this.connection, context));
+        assertEquals("copy:" + Long.MIN_VALUE, context.progress());
+        assertTrue(this.database.tableExists("_users_new"));
+
+        change().apply(this.connection, context);
+        assertMigrated(expectedRows());
+    }
+
+    @Test
+    void resumesCopyWhereItLeftOff() throws SQLException {
+        FailingContext context = new FailingContext("copy:21");
+
+        assertThrows(SQLException.class, () -> change().apply(this.connection, context));
+        assertEquals("copy:11", context.progress());
+        assertEquals(10, this.database.count("SELECT COUNT(*) FROM `_users_new`"));
+
+        List<Long> processed = new ArrayList<>();
+        change().withProgressListener((id, processedRows, remainingRows, rowsPerSecond) -> processed.add(processedRows)).apply(this.connection, context);
+        // Only the chunks after the saved position are copied again.
+        assertEquals(List.of(10L, 15L), processed);
+        assertMigrated(expectedRows());
+    }
+
+    @Test
+    void finishesWhenInterruptedRightAfterTheSwap() throws SQLException {
+        FailingContext context = new FailingContext("swapped");
+
+        assertThrows(SQLException.class, () -> change().apply(this.connection, context));
+        assertTrue(context.progress().startsWith("copy:"));
+        assertFalse(this.database.tableExists("_users_new"));
+        assertTrue(this.database.tableExists("_users_old"));
+
+        change().apply(this.connection, context);
+        assertMigrated(expectedRows());
+    }
+
+    @Test
+    void finishesWhenInterruptedWhileCleaningUp() throws SQLException {
+        this.database.failOnce("DROP TABLE IF EXISTS `_users_old`");
+        FailingContext context = new FailingContext(null);
+
+        assertThrows(SQLException.class, () -> change().apply(this.connection, context));
+        assertEquals("swapped", context.progress());
+
+        change().apply(this.connection, context);
+        assertMigrated(expectedRows());
+    }
+
+    @Test
+    void restartsWhenTheShadowTableDisappeared() throws SQLException {
+        FailingContext context = new FailingContext("copy:21");
+        assertThrows(SQLException.class, () -> change().apply(this.connection, context));
+
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("DROP TABLE `_users_new`");
+        }
+
+        change().apply(this.connection, context);
+        assertMigrated(expectedRows());
+    }
+
+    @Test
+    void copiesTheLargestPossibleKey() throws SQLException {
+        try (Statement statement = this.connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM `users`");
+            statement.executeUpdate("INSERT INTO `users` (`id`, `name`) VALUES (" + (Long.MAX_VALUE - 15) + ", 'almost'), (" + Long.MAX_VALUE + ", 'largest')");
+        }
+
+        change().apply(this.connection, MigrationContext.transientContext());
+
+        assertMigrated(Map.of(Long.MAX_VALUE - 15, "almost", Long.MAX_VALUE, "largest"));
+    }
+
+    private static OnlineSchemaChangeMigration change() {
+        return Migration.onlineSchemaChange("add_email", "users", "id", "ADD COLUMN `email` VARCHAR(255) NULL").withChunkSize(10);
+    }
+
+    private static Map<Long, String> expectedRows() {
+        Map<Long, String> rows = new TreeMap<>();
+        for (long id = 1; id <= ROWS; id++) {
+            rows.put(id, "user" + id);
+        }
+        return rows;
+    }
+
+    private void assertMigrated(Map<Long, String> expectedRows) throws SQLException {
+        Map<Long, String> rows = new TreeMap<>();
+        try (Statement statement = this.connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT `id`, `name`, `email` FROM `users`");
+            while (resultSet.next()) {
+                rows.put(resultSet.getLong(1), resultSet.getString(2));
+            }
+        }
+
+        assertEquals(expectedRows, rows);
+        assertFalse(this.database.tableExists("_users_new"));
+        assertFalse(this.database.tableExists("_users_old"));
+        assertEquals(0, this.database.count("SELECT COUNT(*) FROM `information_schema`.`triggers`"));
+    }
+
+    /**
+     * Keeps progress in memory, like a real context would across attempts,
+     * and fails once when the specified progress is saved.
+     */
+    private static final class FailingContext implements MigrationContext {
+
+        private String failOn;
+        private String progress = null;
+
+        FailingContext(String failOn) {
+            this.failOn = failOn;
+        }
+
+        @Override
+        public String progress() {
+            return this.progress;
+        }
+
+        @Override
+        public void saveProgress(String progress) throws SQLException {
+            if (progress != null && progress.equals(this.failOn)) {
+                this.failOn = null;
+                throw new SQLException("Injected failure while saving " + progress);
+            }
+            this.progress = progress;
+        }
+
+    }
+
+}
@@ -0,0 +1,208 @@
+package me.noahvdaa.schemashift.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SqlScriptReaderTest {
+
+    @Test
+    void splitsStatementsOnDelimiter() throws IOException {
+        assertEquals(
+            List.of("CREATE TABLE `a` (`id` INT)", "INSERT INTO `a` VALUES (1)"),
+            statements("CREATE TABLE `a` (`id` INT);\n\n  INSERT INTO `a` VALUES (1);;\n")
+        );
+    }
+
+    @Test
+    void returnsLastStatementWithoutDelimiter() throws IOException {
+        assertEquals(List.of("SELECT 1", "SELECT 2"), statements("SELECT 1; SELECT 2"));
+    }
+
+    @Test
+    void ignoresDelimitersInsideQuotes() throws IOException {
+        assertEquals(
+            List.of(
+                "INSERT INTO `a;b` VALUES ('x;y', \"z;w\")",
+                "INSERT INTO `a` VALUES ('it''s; fine', 'escaped \\'; quote', \"double \"\"; quote\")",
+                "SELECT `back``tick;`"
+            ),
+            statements("""
+                INSERT INTO `a;b` VALUES ('x;y', "z;w");
+                INSERT INTO `a` VALUES ('it''s; fine', 'escaped \\'; quote', "double ""; quote");
+                SELECT `back``tick;`;
+                """)
+        );
+    }
+
+    @Test
+    void stripsComments() throws IOException {
+        assertEquals(
+            // Whitespace around a stripped comment is kept as is.
+            List.of("SELECT 1", "SELECT  2", "SELECT 3 \nFROM `a`"),
+            statements("""
+                -- leading comment; with a delimiter
+                SELECT 1; # trailing comment; with a delimiter
+                SELECT /* block; comment */ 2;
+                SELECT 3 -- comment
+                FROM `a`;
+                """)
+        );
+    }
+
+    @Test
+    void doesNotNestComments() throws IOException {
+        assertEquals(
+            List.of("SELECT 1", "SELECT '/* not a comment */ -- nor this'", "SELECT 2"),
+            statements("""
+                /* outer /* inner -- still the same comment; */ SELECT 1;
+                -- a line comment /* doesn't start a block comment
+                SELECT '/* not a comment */ -- nor this';
+                /* a block comment -- doesn't end at a line comment
+                ; */ SELECT 2;
+                """)
+        );
+    }
+
+    @Test
+    void requiresWhitespaceAfterDoubleDash() throws IOException {
+        assertEquals(List.of("SELECT 1--1"), statements("SELECT 1--1;"));
+    }
+
+    @Test
+    void keepsExecutableCommentsAndHints() throws IOException {
+        assertEquals(
+            List.of("/*!40101 SET NAMES utf8mb4 */", "SELECT /*+ MAX_EXECUTION_TIME(1000) */ 1"),
+            statements("/*!40101 SET NAMES utf8mb4 */;\nSELECT /*+ MAX_EXECUTION_TIME(1000) */ 1;")
+        );
+    }
+
+    @Test
+    void changesDelimiter() throws IOException {
+        assertEquals(
+            List.of(
+                "CREATE PROCEDURE `p`() BEGIN SELECT 1; SELECT 2; END",
+                "SELECT 3 ;",
+                "SELECT 4"
+            ),
+            statements("""
+                DELIMITER $$
+                CREATE PROCEDURE `p`() BEGIN SELECT 1; SELECT 2; END$$
+                SELECT 3 ;$$
+                delimiter ;
+                SELECT 4;
+                """)
+        );
+    }
+
+    @Test
+    void rejectsEmptyDelimiter() {
+        assertThrows(IOException.class, () -> statements("DELIMITER \nSELECT 1;"));
+    }
+
+    @Test
+    void keepsStoredProgramBodiesTogether() throws IOException {
+        assertEquals(
+            List.of(
+                "CREATE TRIGGER `t` BEFORE INSERT ON `a` FOR EACH ROW BEGIN SET NEW.`x` = 1; SET NEW.`y` = 2; END",
+                "CREATE TABLE `b` (`id` INT)"
+            ),
+            statements("""
+                CREATE TRIGGER `t` BEFORE INSERT ON `a` FOR EACH ROW BEGIN SET NEW.`x` = 1; SET NEW.`y` = 2; END;
+                CREATE TABLE `b` (`id` INT);
+                """)
+        );
+    }
+
+    @Test
+    void handlesNestedAndLabeledBlocks() throws IOException {
+        String procedure = """
+            CREATE PROCEDURE `p`()
+            outer_block: BEGIN
+                DECLARE i INT DEFAULT 0;
+                inner_block: BEGIN
+                    SELECT 1;
+                END inner_block;
+                counter: LOOP
+                    SET i = i + 1;
+                    IF i > 3 THEN
+                        LEAVE counter;
+                    END IF;
+                END LOOP counter;
+                WHILE i > 0 DO
+                    SET i = i - 1;
+                END WHILE;
+                REPEAT
+                    SET i = i + 1;
+                UNTIL i > 2 END REPEAT;
+            END outer_block""";
+
+        assertEquals(List.of(procedure, "SELECT 2"), statements(procedure + ";\nSELECT 2;"));
+    }
+
+    @Test
+    void distinguishesCaseExpressionsFromCaseStatements() throws IOException {
+        String procedure = """
+            CREATE PROCEDURE `p`(IN x INT)
+            BEGIN
+                SELECT CASE WHEN x > 0 THEN 'positive' ELSE 'other' END;
+                CASE x
+                    WHEN 1 THEN SELECT CASE x WHEN 1 THEN 'one' END;
+                    ELSE SELECT 'other';
+                END CASE;
+                SELECT 'still inside';
+            END""";
+
+        assertEquals(List.of(procedure, "SELECT 2"), statements(procedure + ";\nSELECT 2;"));
+    }
+
+    @Test
+    void handlesMariaDbForLoops() throws IOException {
+        String procedure = """
+            CREATE PROCEDURE `p`()
+            BEGIN
+                FOR i IN 1..3 DO
+                    INSERT INTO `a` VALUES (i);
+                END FOR;
+                SELECT 'still inside';
+            END""";
+
+        assertEquals(List.of(procedure, "SELECT 2"), statements(procedure + ";\nSELECT 2;"));
+    }
+
+    @Test
+    void handlesAnonymousBlocks() throws IOException {
+        assertEquals(
+            List.of("BEGIN NOT ATOMIC SELECT 1; SELECT 2; END", "BEGIN", "SELECT 3", "COMMIT"),
+            statements("BEGIN NOT ATOMIC SELECT 1; SELECT 2; END;\nBEGIN;\nSELECT 3;\nCOMMIT;")
+        );
+    }
+
+    @Test
+    void tracksLineNumbers() throws IOException {
+        try (SqlScriptReader reader = new SqlScriptReader("SELECT 1;\n\n-- comment\nSELECT\n2;")) {
+            reader.next();
+            assertEquals(1, reader.lineNumber());
+            reader.next();
+            assertEquals(4, reader.lineNumber());
+            assertEquals(2, reader.statementCount());
+        }
+    }
+
+    private static List<String> statements(String script) throws IOException {
+        List<String> statements = new ArrayList<>();
+        try (SqlScriptReader reader = new SqlScriptReader(script)) {
+            String statement;
+            while ((statement = reader.next()) != null) {
+                statements.add(statement);
+            }
+        }
+        return statements;
+    }
+
+}